@@ -5,5 +5,8 @@ public class AppConstants {
     public static final String PAGE_SIZE = "50";
     public static final String SORT_CATEGORIES_BY = "categoryId";
     public static final String SORT_PRODUCTS_BY = "productId";
+    public static final String SORT_SEARCH_BY = "relevance";
     public static final String SORT_DIR = "asc";
+    public static final String WITH_TOTALS = "true";
+    public static final String SUGGEST_LIMIT = "10";
 }
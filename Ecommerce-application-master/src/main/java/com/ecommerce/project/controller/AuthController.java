@@ -3,19 +3,27 @@ package com.ecommerce.project.controller;
 import com.ecommerce.project.model.AppRole;
 import com.ecommerce.project.model.Role;
 import com.ecommerce.project.model.User;
-import com.ecommerce.project.repositories.RoleRepository;
 import com.ecommerce.project.repositories.UserRepository;
 import com.ecommerce.project.security.jwt.JwtUtils;
+import com.ecommerce.project.security.jwt.TokenRevocationStore;
+import com.ecommerce.project.security.ratelimit.RateLimiter;
 import com.ecommerce.project.security.request.LoginRequest;
 import com.ecommerce.project.security.request.SignUpRequest;
 import com.ecommerce.project.security.response.MessageResponse;
 import com.ecommerce.project.security.response.UserInfoResponse;
+import com.ecommerce.project.security.services.RefreshTokenService;
+import com.ecommerce.project.security.services.RoleRegistry;
+import com.ecommerce.project.security.services.UserDetailsCache;
 import com.ecommerce.project.security.services.UserDetailsImpl;
+import com.ecommerce.project.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -27,6 +35,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -47,14 +56,26 @@ public class AuthController {
     @Autowired
     UserRepository userRepository;
     @Autowired
-    RoleRepository roleRepository;
-    @Autowired
     PasswordEncoder encoder;
+    @Autowired
+    UserDetailsCache userDetailsCache;
+    @Autowired
+    UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    RefreshTokenService refreshTokenService;
+    @Autowired
+    TokenRevocationStore tokenRevocationStore;
+    @Autowired
+    RoleRegistry roleRegistry;
+    @Autowired
+    RateLimiter rateLimiter;
 
     @PostMapping("/signin")
-    public ResponseEntity<?> signIn(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> signIn(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
 
         log.info("User attempting to log in : {}", loginRequest.getUsername());
+        // Password guessing against one account from this address - the per-IP limit covers the rest
+        rateLimiter.checkSignIn("/api/auth/signin", request.getRemoteAddr(), loginRequest.getUsername());
         Authentication authentication;
         try {
 
@@ -62,6 +83,7 @@ public class AuthController {
                     .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
         } catch (AuthenticationException exception) {
+            rateLimiter.failedSignIn("/api/auth/signin", request.getRemoteAddr(), loginRequest.getUsername());
             Map<String, Object> map = new HashMap<>();
             map.put("message", "Bad credentials");
             map.put("Status", false);
@@ -78,81 +100,82 @@ public class AuthController {
 //        String jwtToken = jwtUtils.generateTokenFromUsername(userDetails.getUsername());
 
         ResponseCookie jwtCookie = jwtUtils.generateJwtCookie(userDetails);
+        ResponseCookie refreshCookie = jwtUtils.generateRefreshCookie(refreshTokenService.create(userDetails.getUsername()));
 
 
         List<String> roles = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
         UserInfoResponse response = new UserInfoResponse(userDetails.getId(), userDetails.getUsername(), jwtCookie.toString(), roles);
 //        return ResponseEntity.ok().body(response);
 
-        return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, jwtCookie.toString()).body(response);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, jwtCookie.toString())
+                .header(HttpHeaders.SET_COOKIE, refreshCookie.toString())
+                .body(response);
     }
 
-    @PostMapping("/signup")
-    public ResponseEntity<?> signUp(@Valid @RequestBody SignUpRequest signUpRequest) {
-
-        log.info("New user registration : username {}, and email  {}", signUpRequest.getUsername(), signUpRequest.getEmail());
+    // Renews the access cookie from the refresh cookie - no AuthenticationManager, no BCrypt
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(HttpServletRequest request) {
 
-        if (userRepository.existsByUserName(signUpRequest.getUsername())) {
+        String refreshToken = jwtUtils.getRefreshTokenFromCookies(request);
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(refreshToken);
+        if (rotation.isEmpty()) {
 
-            log.warn("Username is already taken! , {}", signUpRequest.getUsername());
-            return ResponseEntity.badRequest().body(new MessageResponse("Error : Username is already taken!"));
+            log.warn("Refresh rejected : missing, expired or reused refresh token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, jwtUtils.getCleanRefreshCookie().toString())
+                    .body(new MessageResponse("Error : invalid refresh token"));
         }
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
 
-            log.warn("Error : Email is already in use! : {}", signUpRequest.getEmail());
-            return ResponseEntity.badRequest().body(new MessageResponse("Error : Email is already in use!"));
+        UserDetailsImpl userDetails;
+        try {
+            userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(rotation.get().username());
+        } catch (UsernameNotFoundException exception) {
+
+            refreshTokenService.revoke(rotation.get().refreshToken());
+            log.warn("Refresh rejected : user no longer exists {}", rotation.get().username());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .header(HttpHeaders.SET_COOKIE, jwtUtils.getCleanRefreshCookie().toString())
+                    .body(new MessageResponse("Error : invalid refresh token"));
         }
 
+        ResponseCookie jwtCookie = jwtUtils.generateJwtCookie(userDetails);
+        ResponseCookie refreshCookie = jwtUtils.generateRefreshCookie(rotation.get().refreshToken());
+
+        log.info("Access token refreshed for user : {}", userDetails.getUsername());
+        List<String> roles = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        UserInfoResponse response = new UserInfoResponse(userDetails.getId(), userDetails.getUsername(), jwtCookie.toString(), roles);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, jwtCookie.toString())
+                .header(HttpHeaders.SET_COOKIE, refreshCookie.toString())
+                .body(response);
+    }
+
+    @PostMapping("/signup")
+    public ResponseEntity<?> signUp(@Valid @RequestBody SignUpRequest signUpRequest) {
+
+        log.info("New user registration : username {}, and email  {}", signUpRequest.getUsername(), signUpRequest.getEmail());
+
         // Creating new User's account
         User user = new User(signUpRequest.getUsername(), signUpRequest.getEmail(), encoder.encode(signUpRequest.getPassword()));
 
-        // ROLES
+        // ROLES - resolved from the registry, no queries
 
         Set<String> strRoles = signUpRequest.getRole();
         Set<Role> roles = new HashSet<>();
         if (strRoles == null) {
 
-
-            Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
-                    .orElseThrow(() -> {
-
-                        log.error("Error : Role is not found {}", AppRole.ROLE_USER);
-                        return new RuntimeException("Error : Role is not found");
-                    });
-            roles.add(userRole);
+            roles.add(roleRegistry.get(AppRole.ROLE_USER));
 
         } else {
 
 
             strRoles.forEach(eachRole -> {
                         switch (eachRole) {
-                            case "admin" -> {
-                                Role adminRole = roleRepository.findByRoleName(AppRole.ROLE_ADMIN)
-                                        .orElseThrow(() -> {
-                                            log.error("Error : Role is not found {}", AppRole.ROLE_ADMIN);
-                                            return new RuntimeException("Error : Role is not found");
-
-                                        });
-                                //
-                                roles.add(adminRole);
-                            }
-                            case "seller" -> {
-                                Role sellerRole = roleRepository.findByRoleName(AppRole.ROLE_SELLER)
-                                        .orElseThrow(() -> {
-
-                                            log.error("Error : Role is not found {}", AppRole.ROLE_SELLER);
-                                            return new RuntimeException("Error : Role is not found");
-                                        });
-                                roles.add(sellerRole);
-                            }
-                            default -> {
-                                Role userRole = roleRepository.findByRoleName(AppRole.ROLE_USER)
-                                        .orElseThrow(() -> {
-                                            log.error("Error : Role is not found {}", AppRole.ROLE_USER);
-                                            return new RuntimeException("Error : Role is not found");
-                                        });
-                                roles.add(userRole);
-                            }
+                            case "admin" -> roles.add(roleRegistry.get(AppRole.ROLE_ADMIN));
+                            case "seller" -> roles.add(roleRegistry.get(AppRole.ROLE_SELLER));
+                            default -> roles.add(roleRegistry.get(AppRole.ROLE_USER));
                         }
 
                     }
@@ -162,7 +185,30 @@ public class AuthController {
 
         }
         user.setRoles(roles);
-        User savedUser = userRepository.save(user);
+
+        // Insert first - the unique constraints on username and email reject duplicates
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException exception) {
+
+            // Only on the rare duplicate: one query to tell which constraint failed
+            if (userRepository.existsByUserName(signUpRequest.getUsername())) {
+
+                log.warn("Username is already taken! , {}", signUpRequest.getUsername());
+                return ResponseEntity.badRequest().body(new MessageResponse("Error : Username is already taken!"));
+            }
+
+            if (userRepository.existsByEmail(signUpRequest.getEmail())) {
+
+                log.warn("Error : Email is already in use! : {}", signUpRequest.getEmail());
+                return ResponseEntity.badRequest().body(new MessageResponse("Error : Email is already in use!"));
+            }
+
+            // Not a duplicate - some other constraint failed, which is a server error
+            throw exception;
+        }
+        userDetailsCache.evict(savedUser.getUserName());
 
         log.info("User saved successfully : {},{}, {}", savedUser.getUserId(), savedUser.getUserName(), savedUser.getEmail());
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
@@ -217,16 +263,28 @@ public class AuthController {
     }
 
 
-    @PreAuthorize("hasAnyRole('ADMIN','SELLER','USER')")
+    // No authentication required - an expired access token must not keep the refresh token alive
     @PostMapping("/signout")
-    public ResponseEntity<?> signOutUser() {
+    public ResponseEntity<?> signOutUser(HttpServletRequest request) {
         try {
 
 
+            // Revoke the access token server side - clearing the cookie alone does not stop a copied token
+            String jwt = jwtUtils.getJwtFromCookies(request);
+            Claims claims = jwt != null ? jwtUtils.getVerifiedClaims(jwt) : null;
+            if (claims != null) {
+                tokenRevocationStore.revoke(jwt, claims.getExpiration().getTime());
+                jwtUtils.evictVerifiedToken(jwt);
+            }
+
             ResponseCookie cookie = jwtUtils.getCleanJWTCookie();
+            refreshTokenService.revoke(jwtUtils.getRefreshTokenFromCookies(request));
 
             log.info("Log out end point");
-            return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString()).body(
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, cookie.toString())
+                    .header(HttpHeaders.SET_COOKIE, jwtUtils.getCleanRefreshCookie().toString())
+                    .body(
                     new MessageResponse("Logged out successfully!")
             );
         } catch (Exception e) {
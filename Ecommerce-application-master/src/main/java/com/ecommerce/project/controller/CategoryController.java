@@ -3,6 +3,7 @@ package com.ecommerce.project.controller;
 import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.payload.CategoryDTO;
 import com.ecommerce.project.payload.CategoryResponse;
+import com.ecommerce.project.service.CatalogVersions;
 import com.ecommerce.project.service.CategoryService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @Slf4j
 @RestController
@@ -20,6 +22,9 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
 
     @GetMapping("/public/categories")
     public ResponseEntity<CategoryResponse> getAllCategories(
@@ -29,14 +34,28 @@ public class CategoryController {
 
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_CATEGORIES_BY, required = false) String sortBy,
 
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+
+            // Present (even empty) switches to keyset paging
+            @RequestParam(name = "cursor", required = false) String cursor,
+
+            // false -> count-free response, only lastPage
+            @RequestParam(name = "withTotals", defaultValue = AppConstants.WITH_TOTALS, required = false) Boolean withTotals,
+            WebRequest webRequest) {
 
 
         log.info("Fetching all the categories");
-        CategoryResponse categoryResponse = categoryService.getAllCategories(pageNumber, pageSize, sortBy, sortOrder);
+        String eTag = catalogVersions.eTag(CatalogVersions.ALL_CATEGORIES);
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        CategoryResponse categoryResponse = categoryService.getAllCategories(pageNumber, pageSize, sortBy, sortOrder, cursor, withTotals);
 
         log.info("Returning categories : {}", categoryResponse);
-        return new ResponseEntity<>(categoryResponse, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(categoryResponse);
     }
 
 
@@ -70,4 +89,12 @@ public class CategoryController {
         CategoryDTO savedCategoryDTO = categoryService.updateCategory(categoryDTO, categoryId);
         return new ResponseEntity<>(savedCategoryDTO, HttpStatus.OK);
     }
+
+    // 304 with the same validators - nothing is queried or serialized
+    private <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .build();
+    }
 }
@@ -0,0 +1,236 @@
+package com.ecommerce.project.controller;
+
+import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.payload.ImageUploadDTO;
+import com.ecommerce.project.payload.ImageUploadRequest;
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.service.FileService;
+import com.ecommerce.project.service.HotImageCache;
+import com.ecommerce.project.service.ImageUploadService;
+import com.ecommerce.project.service.ImageVariantService;
+import com.ecommerce.project.utils.ImageVariants;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+@Slf4j
+@RestController
+@RequestMapping("/api")
+public class ImageController {
+
+    // Tomcat's sendfile hand-off - the connector streams the file straight from the page cache to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CHUNK_SHA256 = "X-Chunk-SHA256";
+
+    // Uploads are named by content hash (older ones by random UUID), so a name (or one of its variants)
+    // never points at different bytes
+    private static final Pattern IMMUTABLE_NAME = Pattern.compile(
+            "([0-9a-f]{64}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(-(thumb|card|detail))?\\.[A-Za-z0-9]+");
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    @Value("${project.image}")
+    private String path;
+
+    // Shared images like default.png can be replaced in place - revalidated after this long
+    @Value("${spring.app.imageMaxAgeSeconds:3600}")
+    private long mutableMaxAgeSeconds;
+
+    @GetMapping("/public/images/{fileName}")
+    public void getImage(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        String servedName = fileName;
+        Path image;
+        try {
+            image = fileService.getImage(path, fileName);
+        } catch (ResourceNotFoundException e) {
+            // Variant not generated yet (or dropped) - serve the original, uncached, and queue it again
+            String original = ImageVariants.originalName(fileName);
+            if (original == null) {
+                throw e;
+            }
+            image = fileService.getImage(path, original);
+            imageVariantService.submit(original);
+            servedName = original;
+        }
+        long length = Files.size(image);
+        long lastModified = Files.getLastModifiedTime(image).toMillis();
+
+        boolean fallback = !servedName.equals(fileName);
+        boolean immutable = IMMUTABLE_NAME.matcher(servedName).matches();
+        String eTag = immutable ? "\"" + servedName + "\""
+                : "\"" + servedName + "-" + Long.toHexString(length) + "-"
+                + Long.toHexString(lastModified) + "\"";
+        CacheControl cacheControl = fallback ? CacheControl.noCache()
+                : immutable ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.maxAge(mutableMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Sets the ETag, and the 304 status when the client already has it
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // A stale If-Range means the client's partial copy is of other bytes - send the whole file
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(eTag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multipart byteranges are not worth it for images - several ranges get the whole file
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+        // Small hot images are written from off-heap memory - no file is opened for them
+        try (HotImageCache.Lease cached = hotImageCache.get(servedName, image, length, lastModified)) {
+            if (cached != null) {
+                cached.writeTo(Channels.newChannel(response.getOutputStream()), start, end + 1);
+                return;
+            }
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // No sendfile (other containers, tests) - transferTo still skips the user-space copy where the target allows it
+        try (FileChannel file = FileChannel.open(image, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long sent = file.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // Chunked upload for large images and flaky connections: start a session, PUT the chunks in any
+    // order (each with its SHA-256), then complete - GET tells a resuming client what is still missing
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @PostMapping("/admin/products/{productId}/image/uploads")
+    public ResponseEntity<ImageUploadDTO> startImageUpload(
+            @PathVariable Long productId,
+            @Valid @RequestBody ImageUploadRequest imageUploadRequest) throws IOException {
+
+        log.info("Request received : Start image upload for product Id : {}", productId);
+        ImageUploadDTO imageUploadDTO = imageUploadService.startUpload(productId, imageUploadRequest);
+        return new ResponseEntity<>(imageUploadDTO, HttpStatus.CREATED);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @GetMapping("/admin/images/uploads/{uploadId}")
+    public ResponseEntity<ImageUploadDTO> getImageUpload(@PathVariable String uploadId) {
+        return new ResponseEntity<>(imageUploadService.getUpload(uploadId), HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @PutMapping(value = "/admin/images/uploads/{uploadId}/chunks/{chunkIndex}",
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ImageUploadDTO> uploadImageChunk(
+            @PathVariable String uploadId,
+            @PathVariable Integer chunkIndex,
+            @RequestHeader(CHUNK_SHA256) String sha256,
+            InputStream body) throws IOException {
+
+        ImageUploadDTO imageUploadDTO = imageUploadService.writeChunk(uploadId, chunkIndex, sha256, body);
+        return new ResponseEntity<>(imageUploadDTO, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @PostMapping("/admin/images/uploads/{uploadId}/complete")
+    public ResponseEntity<ProductDTO> completeImageUpload(@PathVariable String uploadId) throws IOException {
+
+        log.info("Request received : Complete image upload : {}", uploadId);
+        ProductDTO updatedProduct = imageUploadService.completeUpload(uploadId);
+
+        log.info("Product image updated from upload {} for product Id : {}", uploadId, updatedProduct.getProductId());
+        return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @DeleteMapping("/admin/images/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelImageUpload(@PathVariable String uploadId) throws IOException {
+        imageUploadService.cancelUpload(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,18 +2,28 @@ package com.ecommerce.project.controller;
 
 import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.payload.ProductFilterResponse;
+import com.ecommerce.project.payload.ProductImportResponse;
 import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.payload.ProductSuggestion;
+import com.ecommerce.project.service.CatalogVersions;
+import com.ecommerce.project.service.ProductImportService;
 import com.ecommerce.project.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -23,6 +33,12 @@ public class ProductController {
     @Autowired
     ProductService productService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductImportService productImportService;
+
 
     @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
     @PostMapping("/admin/categories/{categoryId}/product")
@@ -40,6 +56,42 @@ public class ProductController {
     }
 
 
+    // Streams the body - CSV with a header row, or one JSON product per line
+    @PreAuthorize("hasAnyRole('ADMIN','SELLER')")
+    @PostMapping(value = "/admin/categories/{categoryId}/products/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductImportResponse> importProducts(
+            @PathVariable Long categoryId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+
+        log.info("Request received: Importing products into category : {}", categoryId);
+        ProductImportResponse productImportResponse = productImportService.importProducts(categoryId, body,
+                MediaType.parseMediaType(contentType));
+
+        log.info("Product import finished : {} imported, {} duplicates, {} rejected", productImportResponse.getImported(),
+                productImportResponse.getDuplicates(), productImportResponse.getRejected());
+        return new ResponseEntity<>(productImportResponse, HttpStatus.OK);
+    }
+
+
+    @GetMapping("/public/products/{productId}")
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long productId, WebRequest webRequest) {
+
+        log.info("Request received : Fetching product by product Id : {}", productId);
+        String eTag = catalogVersions.eTag(CatalogVersions.product(productId));
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        ProductDTO productDTO = productService.getProductById(productId);
+
+        log.info("Returning product : {}", productDTO);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(productDTO);
+    }
+
+
     @GetMapping("/public/products")
     public ResponseEntity<ProductResponse> getAllProducts(
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
@@ -48,13 +100,74 @@ public class ProductController {
 
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
 
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+
+            // Present (even empty) switches to keyset paging
+            @RequestParam(name = "cursor", required = false) String cursor,
+
+            // false -> count-free response, only lastPage
+            @RequestParam(name = "withTotals", defaultValue = AppConstants.WITH_TOTALS, required = false) Boolean withTotals,
+            WebRequest webRequest) {
 
         log.info("Request received : Fetching all the products ");
-        ProductResponse productResponse = productService.getAllProducts(pageNumber, pageSize, sortBy, sortOrder);
+        String eTag = catalogVersions.eTag(CatalogVersions.ALL_PRODUCTS);
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        ProductResponse productResponse = productService.getAllProducts(pageNumber, pageSize, sortBy, sortOrder, cursor, withTotals);
 
         log.info(" Returning products - {}", productResponse);
-        return new ResponseEntity<>(productResponse, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(productResponse);
+    }
+
+
+    @GetMapping("/public/products/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(
+            @RequestParam(name = "q") String query,
+
+            @RequestParam(name = "limit", defaultValue = AppConstants.SUGGEST_LIMIT, required = false) Integer limit) {
+
+        List<ProductSuggestion> suggestions = productService.suggestProducts(query, limit);
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
+
+    @GetMapping("/public/products/filter")
+    public ResponseEntity<ProductFilterResponse> filterProducts(
+            @RequestParam(name = "categoryId", required = false) Long categoryId,
+
+            // Compared against the special (discounted) price
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+
+            @RequestParam(name = "minDiscount", required = false) Double minDiscount,
+
+            @RequestParam(name = "inStock", required = false) Boolean inStock,
+
+            @RequestParam(name = "sellerId", required = false) Long sellerId,
+
+            @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
+
+            @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
+            WebRequest webRequest) {
+
+        log.info("Request received : Filtering products");
+        String eTag = catalogVersions.eTag(CatalogVersions.ALL_PRODUCTS);
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        ProductFilterResponse productFilterResponse = productService.filterProducts(categoryId, minPrice, maxPrice,
+                minDiscount, inStock, sellerId, pageNumber, pageSize);
+
+        log.info(" Returning filtered products - {}", productFilterResponse);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(productFilterResponse);
     }
 
 
@@ -68,16 +181,29 @@ public class ProductController {
 
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
 
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
 
+            // Present (even empty) switches to keyset paging
+            @RequestParam(name = "cursor", required = false) String cursor,
+
+            // false -> count-free response, only lastPage
+            @RequestParam(name = "withTotals", defaultValue = AppConstants.WITH_TOTALS, required = false) Boolean withTotals,
+            WebRequest webRequest) {
 
-        log.info("Request received : Fetching products by category Id : {}", categoryId);
 
+        log.info("Request received : Fetching products by category Id : {}", categoryId);
+        String eTag = catalogVersions.eTag(CatalogVersions.category(categoryId));
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
 
-        ProductResponse productResponse = productService.searchByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder);
+        ProductResponse productResponse = productService.searchByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder, cursor, withTotals);
 
         log.info("Returning  the products based on category id : {}, products :{}", categoryId, productResponse);
-        return new ResponseEntity<>(productResponse, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(productResponse);
     }
 
 
@@ -86,15 +212,25 @@ public class ProductController {
             @PathVariable String keyword,
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
-            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_SEARCH_BY, required = false) String sortBy,
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+            // false -> count-free response, only lastPage
+            @RequestParam(name = "withTotals", defaultValue = AppConstants.WITH_TOTALS, required = false) Boolean withTotals,
+            WebRequest webRequest) {
         log.info("Request received : Fetching products by Keyword : {}", keyword);
+        // Any product write can change what a search returns
+        String eTag = catalogVersions.eTag(CatalogVersions.ALL_PRODUCTS);
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
 
-
-        ProductResponse productResponse = productService.searchProductByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder);
+        ProductResponse productResponse = productService.searchProductByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder, withTotals);
         log.info("Returning  the products based on Keyword : {}, products :{}", keyword, productResponse);
 
-        return new ResponseEntity<>(productResponse, HttpStatus.FOUND);
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .body(productResponse);
     }
 
 
@@ -141,4 +277,12 @@ public class ProductController {
 
         return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
     }
+
+    // 304 with the same validators - nothing is queried or serialized
+    private <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .cacheControl(catalogVersions.cacheControl())
+                .build();
+    }
 }
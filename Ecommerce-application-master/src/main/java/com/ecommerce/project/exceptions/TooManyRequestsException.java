@@ -0,0 +1,17 @@
+package com.ecommerce.project.exceptions;
+
+// Raised when a client or username runs out of rate limit tokens - mapped to 429 with Retry-After
+public class TooManyRequestsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
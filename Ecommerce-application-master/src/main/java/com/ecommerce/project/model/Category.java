@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Entity(name = "categories")
+@Table(indexes = @Index(name = "idx_categories_name", columnList = "category_name, category_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,28 @@
+package com.ecommerce.project.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One stored image file, named by the SHA-256 of its content, and how many products point at it
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "image_blobs")
+public class ImageBlob {
+
+    @Id
+    private String fileName;
+
+    private int refCount;
+
+    private long size;
+
+    private Instant createdAt;
+}
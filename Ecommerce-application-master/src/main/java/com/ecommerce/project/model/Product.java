@@ -15,7 +15,13 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+// Composite indexes for the keyset sorts - each ends in the id so (sortKey, id) seeks stay on the index
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_price", columnList = "category_id, price, product_id"),
+        @Index(name = "idx_products_name", columnList = "product_name, product_id"),
+        @Index(name = "idx_products_price", columnList = "price, product_id"),
+        @Index(name = "idx_products_special_price", columnList = "special_price, product_id")
+})
 @ToString
 public class Product {
 
@@ -40,6 +46,7 @@ public class Product {
     @JoinColumn(name = "category_id")
     private Category category;
 
+    @ToString.Exclude
     @ManyToOne
     @JoinColumn(name = "Seller_id")
     private User user;
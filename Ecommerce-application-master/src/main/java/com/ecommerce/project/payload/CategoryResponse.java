@@ -16,4 +16,6 @@ public class CategoryResponse {
     private Long totalElements;
     private Integer totalPages;
     private boolean lastPage;
+    // Cursor mode only - pass back as ?cursor= for the next page, null on the last one
+    private String nextCursor;
 }
@@ -0,0 +1,22 @@
+package com.ecommerce.project.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageUploadDTO {
+    private String uploadId;
+    private Long productId;
+    private String fileName;
+    private long size;
+    // Chunk i covers bytes [i * chunkSize, min((i + 1) * chunkSize, size))
+    private int chunkSize;
+    private int chunkCount;
+    // What a resuming client still has to send
+    private List<Integer> missingChunks;
+}
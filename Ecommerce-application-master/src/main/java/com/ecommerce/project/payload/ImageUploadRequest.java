@@ -0,0 +1,19 @@
+package com.ecommerce.project.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageUploadRequest {
+    // Only its extension is kept - the stored name is the content hash
+    @NotBlank
+    private String fileName;
+
+    @Positive
+    private long size;
+}
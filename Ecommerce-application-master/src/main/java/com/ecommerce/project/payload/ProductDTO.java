@@ -1,9 +1,13 @@
 package com.ecommerce.project.payload;
 
+import com.ecommerce.project.utils.ImageVariants;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,4 +20,10 @@ public class ProductDTO {
     private double price;
     private double discount;
     private double specialPrice;
+
+    // thumb / card / detail / original - derived from the image name, so cached DTOs never hold stale URLs
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<String, String> getImageUrls() {
+        return ImageVariants.urls(image);
+    }
 }
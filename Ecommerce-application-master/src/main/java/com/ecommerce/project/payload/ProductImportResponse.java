@@ -0,0 +1,23 @@
+package com.ecommerce.project.payload;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ProductImportResponse {
+    private Long categoryId;
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    private long rejected;
+    // Capped - errorsTruncated says more rows failed than are listed
+    private List<ProductImportError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    // The input could not be read to the end - rows after the last listed error were not looked at
+    private boolean aborted;
+    private long elapsedMs;
+}
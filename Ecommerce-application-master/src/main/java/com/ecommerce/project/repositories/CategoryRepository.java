@@ -1,9 +1,21 @@
 package com.ecommerce.project.repositories;
 
 import com.ecommerce.project.model.Category;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface CategoryRepository extends JpaRepository<Category,Long> {
     Category findByCategoryName(String categoryName);
 
+    // Slice - no COUNT, the total comes from CatalogCountCache
+    Slice<Category> findSliceBy(Pageable pageDetails);
+
+    // Keyset pages - no OFFSET, no COUNT
+    Window<Category> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
 }
@@ -0,0 +1,31 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.model.ImageBlob;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // Never below zero - releasing an image twice must not free it for someone else's reference
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount + :delta WHERE b.fileName = :fileName AND b.refCount + :delta >= 0")
+    int adjustRefCount(@Param("fileName") String fileName, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.fileName = :fileName AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("fileName") String fileName);
+
+    // Keyset over file names - the sweeper deletes as it goes, so offsets would skip rows
+    @Query("SELECT b.fileName FROM ImageBlob b WHERE b.refCount = 0 AND b.fileName > :afterName ORDER BY b.fileName")
+    List<String> findUnreferencedAfter(@Param("afterName") String afterName, Pageable limit);
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.payload.ProductDTO;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+// Keyset pages projected straight into ProductDTO - derived Window queries only scroll over entities
+public interface ProductCatalogRepository {
+
+    // categoryId null -> all products
+    Window<ProductDTO> scrollProductDTOs(Long categoryId, KeysetScrollPosition position, Sort sort, int limit);
+}
@@ -0,0 +1,100 @@
+package com.ecommerce.project.repositories;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ProductCatalogRepositoryImpl implements ProductCatalogRepository {
+
+    private static final String ID = "productId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Window<ProductDTO> scrollProductDTOs(Long categoryId, KeysetScrollPosition position, Sort sort, int limit) {
+        // Same keyset as Spring Data would use: the sort properties, then the id as tie-breaker
+        List<Sort.Order> orders = new ArrayList<>(sort.toList());
+        if (sort.getOrderFor(ID) == null) {
+            orders.add(Sort.Order.asc(ID));
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+        Root<Product> product = query.from(Product.class);
+        query.select(cb.construct(ProductDTO.class,
+                product.get("productId"), product.get("productName"), product.get("image"), product.get("description"),
+                product.get("quantity"), product.get("price"), product.get("discount"), product.get("specialPrice")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (categoryId != null) {
+            where.add(cb.equal(product.get("category").get("categoryId"), categoryId));
+        }
+        if (!position.getKeys().isEmpty()) {
+            where.add(after(cb, product, orders, position.getKeys()));
+        }
+        query.where(where.toArray(Predicate[]::new));
+        query.orderBy(orders.stream()
+                .map(order -> order.isAscending() ? cb.asc(product.get(order.getProperty())) : cb.desc(product.get(order.getProperty())))
+                .toArray(Order[]::new));
+
+        // One extra row tells whether there is a next window
+        List<ProductDTO> rows = entityManager.createQuery(query)
+                .setMaxResults(limit + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > limit;
+        List<ProductDTO> content = hasNext ? rows.subList(0, limit) : rows;
+        return Window.from(content, index -> positionOf(content.get(index), orders), hasNext);
+    }
+
+    // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... - direction per sort order
+    private static Predicate after(CriteriaBuilder cb, Root<Product> product, List<Sort.Order> orders, Map<String, ?> keys) {
+        List<Predicate> alternatives = new ArrayList<>(orders.size());
+        List<Predicate> equalSoFar = new ArrayList<>(orders.size());
+        for (Sort.Order order : orders) {
+            Object value = keys.get(order.getProperty());
+            if (value == null) {
+                throw new IllegalArgumentException("Missing keyset value for " + order.getProperty());
+            }
+            Path<?> path = product.get(order.getProperty());
+            List<Predicate> alternative = new ArrayList<>(equalSoFar);
+            alternative.add(beyond(cb, order, path, value));
+            alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+            equalSoFar.add(cb.equal(path, value));
+        }
+        return cb.or(alternatives.toArray(Predicate[]::new));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate beyond(CriteriaBuilder cb, Sort.Order order, Path path, Object value) {
+        Comparable comparable = (Comparable) value;
+        return order.isAscending() ? cb.greaterThan(path, comparable) : cb.lessThan(path, comparable);
+    }
+
+    private static ScrollPosition positionOf(ProductDTO row, List<Sort.Order> orders) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : orders) {
+            keys.put(order.getProperty(), wrapper.getPropertyValue(order.getProperty()));
+        }
+        return ScrollPosition.forward(keys);
+    }
+}
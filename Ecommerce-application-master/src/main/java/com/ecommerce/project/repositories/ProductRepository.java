@@ -2,14 +2,60 @@ package com.ecommerce.project.repositories;
 
 import com.ecommerce.project.model.Category;
 import com.ecommerce.project.model.Product;
-import org.springframework.data.domain.Page;
+import com.ecommerce.project.payload.ProductDTO;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageDetails);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductCatalogRepository {
+
+    // Catalog reads select straight into ProductDTO - no Product, Category, seller or CartItem graph is loaded
+    String PRODUCT_DTO = "SELECT new com.ecommerce.project.payload.ProductDTO(p.productId, p.productName, p.image, "
+            + "p.description, p.quantity, p.price, p.discount, p.specialPrice) FROM Product p";
+
+    // Slices fetch pageSize + 1 rows and skip the COUNT - totals come from CatalogCountCache
+    @Query(PRODUCT_DTO)
+    Slice<ProductDTO> findProductDTOs(Pageable pageDetails);
+
+    @Query(PRODUCT_DTO + " WHERE p.productId = :productId")
+    Optional<ProductDTO> findProductDTOById(@Param("productId") Long productId);
+
+    @Query(PRODUCT_DTO + " WHERE p.category.categoryId = :categoryId ORDER BY p.price ASC")
+    Slice<ProductDTO> findProductDTOsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageDetails);
+
+    @Query(PRODUCT_DTO + " WHERE p.productId IN :productIds")
+    Slice<ProductDTO> findProductDTOsByIds(@Param("productIds") Collection<Long> productIds, Pageable pageDetails);
+
+    @Query(PRODUCT_DTO + " WHERE p.productId IN :productIds")
+    List<ProductDTO> findProductDTOsByIds(@Param("productIds") Collection<Long> productIds);
+
+    long countByCategory(Category category);
+
+    boolean existsByCategoryAndProductName(Category category, String productName);
+
+    @Query("SELECT p.productName FROM Product p WHERE p.category.categoryId = :categoryId")
+    List<String> findProductNamesByCategoryId(@Param("categoryId") Long categoryId);
+
+    // productId, productName, description - just what the search index needs, in id order
+    @Query("SELECT p.productId, p.productName, p.description FROM Product p WHERE p.productId > :afterId ORDER BY p.productId")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    // productId, categoryId, sellerId, specialPrice, discount, quantity - what the facet index needs, in id order
+    @Query("SELECT p.productId, c.categoryId, u.userId, p.specialPrice, p.discount, p.quantity FROM Product p "
+            + "LEFT JOIN p.category c LEFT JOIN p.user u WHERE p.productId > :afterId ORDER BY p.productId")
+    List<Object[]> findFacetRowsAfter(@Param("afterId") Long afterId, Pageable limit);
 
-    Page<Product> findByProductNameLikeIgnoreCase(String keyword, Pageable pageDetails);
+    // productId, productName, quantity, units ordered - what the suggest index ranks by, in id order
+    @Query("SELECT p.productId, p.productName, p.quantity, COALESCE(SUM(oi.quantity), 0) FROM Product p "
+            + "LEFT JOIN OrderItem oi ON oi.product = p WHERE p.productId > :afterId "
+            + "GROUP BY p.productId, p.productName, p.quantity ORDER BY p.productId")
+    List<Object[]> findSuggestRowsAfter(@Param("afterId") Long afterId, Pageable limit);
 }
@@ -7,12 +7,24 @@ import com.ecommerce.project.repositories.RoleRepository;
 import com.ecommerce.project.repositories.UserRepository;
 import com.ecommerce.project.security.jwt.AuthEntryPointJwt;
 import com.ecommerce.project.security.jwt.AuthTokenFilter;
+import com.ecommerce.project.security.password.BCryptCostCalibrator;
+import com.ecommerce.project.security.password.BoundedPasswordEncoder;
+import com.ecommerce.project.security.ratelimit.RateLimitFilter;
+import com.ecommerce.project.security.ratelimit.RateLimiter;
+import com.ecommerce.project.security.services.RoleRegistry;
+import com.ecommerce.project.security.services.UserDetailsCache;
 import com.ecommerce.project.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -27,6 +39,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.List;
 import java.util.Set;
 
 @Slf4j
@@ -42,11 +55,44 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt authEntryPointJwt;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    // BCrypt cost is calibrated at startup to roughly this hash time
+    @Value("${spring.app.bcryptTargetMs:250}")
+    private long bcryptTargetMs;
+
+    @Value("${spring.app.passwordHashQueueSize:64}")
+    private int passwordHashQueueSize;
+
+    @Value("${spring.app.passwordHashTimeoutMs:5000}")
+    private long passwordHashTimeoutMs;
+
+    @Value("${spring.app.passwordHashRetryAfterSeconds:2}")
+    private long passwordHashRetryAfterSeconds;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
     }
 
+    // Only the security chains run the JWT filter - keep Boot from adding it to every servlet request as well
+    @Bean
+    public FilterRegistrationBean<AuthTokenFilter> authenticationJwtTokenFilterRegistration(AuthTokenFilter authenticationJwtTokenFilter) {
+        FilterRegistrationBean<AuthTokenFilter> registration = new FilterRegistrationBean<>(authenticationJwtTokenFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
 
@@ -59,13 +105,45 @@ public class WebSecurityConfig {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userDetailsServiceImpl);
         authenticationProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes users with an outdated BCrypt cost on their next successful sign in
+        authenticationProvider.setUserDetailsPasswordService(userDetailsServiceImpl);
         return authenticationProvider;
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
         // use custom algo- if you any
-        return new BCryptPasswordEncoder();
+        int strength = BCryptCostCalibrator.calibrate(bcryptTargetMs);
+        BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(strength),
+                Runtime.getRuntime().availableProcessors(),
+                passwordHashQueueSize,
+                passwordHashTimeoutMs,
+                passwordHashRetryAfterSeconds);
+        ExecutorServiceMetrics.monitor(meterRegistry, passwordEncoder.getExecutor(), "passwordHashing");
+        return passwordEncoder;
+    }
+
+    // Public catalog reads -> minimal chain: no JWT parsing, no session, no security context, only the rate limiter
+
+    @Bean
+    @Order(1)
+    @ConditionalOnProperty(name = "spring.app.publicChainEnabled", havingValue = "true", matchIfMissing = true)
+    public SecurityFilterChain publicFilterChain(HttpSecurity http) throws Exception {
+
+        http.securityMatcher("/api/public/**")
+                .csrf(csrf -> csrf.disable())
+                .securityContext(securityContext -> securityContext.disable())
+                .sessionManagement(session -> session.disable())
+                .requestCache(requestCache -> requestCache.disable())
+                .anonymous(anonymous -> anonymous.disable())
+                .logout(logout -> logout.disable());
+
+        http.headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin));
+
+        http.addFilterBefore(new RateLimitFilter(rateLimiter), UsernamePasswordAuthenticationFilter.class);
+
+        return http.build();
     }
 
     // Main -> Security filter chain
@@ -81,6 +159,9 @@ public class WebSecurityConfig {
                 .authorizeHttpRequests(request ->
                                 request.requestMatchers("/api/auth/signin").permitAll()
                                         .requestMatchers("/api/auth/signup").permitAll()
+                                        .requestMatchers("/api/auth/refresh").permitAll()
+                                        // Revokes by the refresh cookie alone - must work after the access token expired
+                                        .requestMatchers("/api/auth/signout").permitAll()
                                         // Restrictions
                                         // RBAC
                                         .requestMatchers("/api/public/**").permitAll()
@@ -98,6 +179,9 @@ public class WebSecurityConfig {
                                         .requestMatchers("/swagger-ui/**").permitAll()
                                         .requestMatchers("/api/test/**").permitAll()
                                         .requestMatchers("/h2-console/**").permitAll()
+                                        // Actuator - health is public, metrics only for admin
+                                        .requestMatchers("/actuator/health").permitAll()
+                                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                                         .anyRequest().authenticated()
 
 
@@ -106,6 +190,8 @@ public class WebSecurityConfig {
         http.headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin));
 
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        // Throttle before any cookie parsing or user loading
+        http.addFilterBefore(new RateLimitFilter(rateLimiter), AuthTokenFilter.class);
 
         return http.build();
     }
@@ -150,6 +236,7 @@ public class WebSecurityConfig {
                     }
             );
 
+            roleRegistry.load(List.of(userRole, sellerRole, adminRole));
 
             Set<Role> userRoles = Set.of(userRole);
             Set<Role> sellerRoles = Set.of(sellerRole);
@@ -183,16 +270,19 @@ public class WebSecurityConfig {
 
                 user.setRoles(userRoles);
                 userRepository.save(user);
+                userDetailsCache.evict(user.getUserName());
             });
             userRepository.findUserByUserName("seller1").ifPresent(seller -> {
 
                 seller.setRoles(sellerRoles);
                 userRepository.save(seller);
+                userDetailsCache.evict(seller.getUserName());
             });
             userRepository.findUserByUserName("admin").ifPresent(admin -> {
 
                 admin.setRoles(adminRoles);
                 userRepository.save(admin);
+                userDetailsCache.evict(admin.getUserName());
             });
 
         };
@@ -2,6 +2,7 @@ package com.ecommerce.project.security.jwt;
 
 import com.ecommerce.project.security.services.UserDetailsImpl;
 import com.ecommerce.project.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,18 +11,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+// Created by WebSecurityConfig and only run inside the security filter chain
 @Slf4j
-@Component
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     @Autowired
@@ -30,6 +32,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsServiceImpl;
 
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -37,12 +42,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         String jwt = parseJwt(request);
+        if (jwt != null && tokenRevocationStore.isRevoked(jwt)) {
+            log.debug("Revoked token presented for {}", request.getRequestURI());
+            jwt = null;
+        }
 
         try {
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
-                UserDetailsImpl userDetails = userDetailsServiceImpl.loadUserByUsername(username);
-
+            Claims claims = jwt != null ? jwtUtils.getVerifiedClaims(jwt) : null;
+            if (claims != null) {
+                UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+                if (userDetails == null) {
+                    userDetails = reloadUserDetails(claims, response);
+                }
 
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -59,6 +70,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
     }
 
+    // Claims missing or older than the staleness window -> load from DB, re-issue with fresh roles
+
+    private UserDetailsImpl reloadUserDetails(Claims claims, HttpServletResponse response) {
+        UserDetailsImpl userDetails = userDetailsServiceImpl.loadUserByUsername(claims.getSubject());
+
+        if (jwtUtils.isSelfContained()) {
+            ResponseCookie jwtCookie = jwtUtils.generateJwtCookie(userDetails, claims.getExpiration());
+            response.addHeader(HttpHeaders.SET_COOKIE, jwtCookie.toString());
+        }
+        return userDetails;
+    }
+
     private String parseJwt(HttpServletRequest request) {
 
 //        String jwt = jwtUtils.getJwtFromHeader(request);
@@ -1,12 +1,16 @@
 package com.ecommerce.project.security.jwt;
 
 import com.ecommerce.project.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -14,13 +18,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.WebUtils;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
 import java.util.Date;
+import java.util.List;
 
 @Slf4j
 @Component
@@ -38,6 +44,40 @@ public class JwtUtils {
     @Value("${spring.app.jwtCookieName}")
     private String jwtCookieName;
 
+    @Value("${spring.app.refreshExpirationMs:604800000}")
+    private long refreshExpirationMs;
+
+    @Value("${spring.app.refreshCookieName:Spring_Ecom_refresh}")
+    private String refreshCookieName;
+
+    @Value("${spring.app.jwtCacheSize:10000}")
+    private int jwtCacheSize;
+
+    // Self-contained tokens carry id, email and roles so the filter can skip the users table
+    @Value("${spring.app.jwtSelfContained:true}")
+    private boolean jwtSelfContained;
+
+    // How long claims are trusted before the principal is reloaded and the token re-issued
+    @Value("${spring.app.jwtClaimsMaxAgeMs:300000}")
+    private long jwtClaimsMaxAgeMs;
+
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLES = "roles";
+
+    // Built once - decoding the secret and building the parser on every call is wasted work
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokenCache = new VerifiedTokenCache(jwtCacheSize);
+    }
 
     // Get JwtCookieName
 
@@ -55,21 +95,57 @@ public class JwtUtils {
     //Create cookie
 
     public ResponseCookie generateJwtCookie(UserDetailsImpl userDetails) {
-        String jwt = generateTokenFromUsername(userDetails.getUsername());
+        return generateJwtCookie(userDetails, new Date(new Date().getTime() + jwtExpirationMs));
+    }
+
+    // Re-issue keeps the original expiry so the session does not slide
+
+    public ResponseCookie generateJwtCookie(UserDetailsImpl userDetails, Date expiration) {
+        String jwt = jwtSelfContained
+                ? generateTokenFromUserDetails(userDetails, expiration)
+                : generateTokenFromUsername(userDetails.getUsername());
+        // Cookie lives as long as the token inside it
+        long maxAgeSeconds = Math.max(0, (expiration.getTime() - System.currentTimeMillis()) / 1000);
         ResponseCookie cookie = ResponseCookie
                 .from(jwtCookieName, jwt)
                 .path("/api")
-                .maxAge(24 * 60 * 60)
+                .maxAge(maxAgeSeconds)
                 .httpOnly(false)
                 .build();
         return cookie;
     }
 
+    // Refresh cookie - only ever sent to /api/auth
+
+    public ResponseCookie generateRefreshCookie(String refreshToken) {
+        return ResponseCookie
+                .from(refreshCookieName, refreshToken)
+                .path("/api/auth")
+                .maxAge(refreshExpirationMs / 1000)
+                .httpOnly(true)
+                .build();
+    }
+
+    public String getRefreshTokenFromCookies(HttpServletRequest request) {
+
+        Cookie cookie = WebUtils.getCookie(request, refreshCookieName);
+        return cookie != null ? cookie.getValue() : null;
+    }
+
+    public ResponseCookie getCleanRefreshCookie() {
+        return ResponseCookie.from(refreshCookieName, "")
+                .path("/api/auth")
+                .maxAge(0)
+                .build();
+    }
+
     // Clean cookie
 
     public ResponseCookie getCleanJWTCookie() {
-        ResponseCookie cookie = ResponseCookie.from("ecom_cookie", null)
-                .path("/api").build();
+        ResponseCookie cookie = ResponseCookie.from(jwtCookieName, "")
+                .path("/api")
+                .maxAge(0)
+                .build();
         return cookie;
     }
     // Extract JWt token from Header
@@ -99,50 +175,98 @@ public class JwtUtils {
                 .subject(username)
                 .issuedAt(new Date())
                 .expiration(new Date(new Date().getTime() + jwtExpirationMs))
-                .signWith(key())
+                .signWith(signingKey)
                 .compact();
 
     }
 
-    public String getUsernameFromJwtToken(String token) {
+    // Generate Token with the principal embedded as claims
 
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+    public String generateTokenFromUserDetails(UserDetailsImpl userDetails, Date expiration) {
+
+        List<String> roles = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        return Jwts.builder()
+                .subject(userDetails.getUsername())
+                .claim(CLAIM_USER_ID, userDetails.getId())
+                .claim(CLAIM_EMAIL, userDetails.getEmail())
+                .claim(CLAIM_ROLES, roles)
+                .issuedAt(new Date())
+                .expiration(expiration)
+                .signWith(signingKey)
+                .compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    // Claims -> UserDetailsImpl, or null when the token is not self-contained or its claims are too old
+
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+
+        if (!jwtSelfContained || !claims.containsKey(CLAIM_USER_ID) || claims.getIssuedAt() == null) {
+            return null;
+        }
+        if (claims.getIssuedAt().getTime() + jwtClaimsMaxAgeMs < System.currentTimeMillis()) {
+            return null;
+        }
+
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = roles == null ? List.of()
+                : roles.stream().map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString())).toList();
+        return new UserDetailsImpl(
+                claims.get(CLAIM_USER_ID, Long.class),
+                claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class),
+                null,
+                authorities
+        );
+    }
+
+    public boolean isSelfContained() {
+        return jwtSelfContained;
+    }
+
+    // Signed out tokens must not be served from the verified cache either
+    public void evictVerifiedToken(String token) {
+        verifiedTokenCache.remove(token);
+    }
+
+    public String getUsernameFromJwtToken(String token) {
+
+        Claims claims = getVerifiedClaims(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
 
     public boolean validateJwtToken(String authToken) {
 
+        return getVerifiedClaims(authToken) != null;
+    }
+
+    // Parse and verify once - repeat requests with the same token are served from the cache
+
+    public Claims getVerifiedClaims(String authToken) {
+
+        Claims claims = verifiedTokenCache.get(authToken);
+        if (claims != null) {
+            return claims;
+        }
 
         try {
-            System.out.println("Validate method ");
-
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build()
-                    .parseSignedClaims(authToken);
-            System.out.println(" valid JWT ");
-            return true;
+            claims = jwtParser.parseSignedClaims(authToken).getPayload();
+            verifiedTokenCache.put(authToken, claims);
+            return claims;
         } catch (MalformedJwtException e) {
             log.error("invalid JWT Token :{}", e.getMessage());
         } catch (ExpiredJwtException e) {
             log.error("Jwt token is expired :{}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             log.error("unsupported JWT Token :{}", e.getMessage());
+        } catch (SignatureException e) {
+            log.error("invalid JWT signature :{}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("Jwt claims String is empty :{}", e.getMessage());
         }
 
 
-        return false;
+        return null;
     }
 
 
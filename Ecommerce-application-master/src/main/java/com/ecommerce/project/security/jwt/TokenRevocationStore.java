@@ -0,0 +1,177 @@
+package com.ecommerce.project.security.jwt;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Revoked access tokens until they expire on their own.
+// A ring of Bloom filters, one per slice of expiry time, answers "definitely not revoked" without allocating;
+// positives are confirmed against the exact map. A bucket is wiped once every token in it has expired.
+@Slf4j
+@Component
+public class TokenRevocationStore {
+
+    private static final int HASHES = 4;
+
+    @Value("${spring.app.jwtExpirationMs}")
+    private long jwtExpirationMs;
+
+    @Value("${spring.app.revocationBucketMs:60000}")
+    private long bucketMs;
+
+    // Bits per bucket, rounded up to a power of two
+    @Value("${spring.app.revocationBloomBits:65536}")
+    private int bloomBits;
+
+    private Bucket[] buckets;
+    private int bitMask;
+
+    // signature -> expiresAt
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Enough buckets to cover the longest lived token, plus the one currently rolling off
+        int bucketCount = (int) (jwtExpirationMs / bucketMs) + 2;
+        int bits = 64;
+        while (bits < bloomBits) {
+            bits <<= 1;
+        }
+        bitMask = bits - 1;
+        buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket(bits / 64);
+        }
+        log.info("Token revocation store : {} buckets of {} bits, {} ms each", bucketCount, bits, bucketMs);
+    }
+
+    public void revoke(String token, long expiresAt) {
+        int from = signatureStart(token);
+        long now = System.currentTimeMillis();
+        if (from < 0 || expiresAt <= now) {
+            return;
+        }
+        // Tokens are never issued past jwtExpirationMs - clamp so the bucket cannot roll off early
+        long slot = Math.min(expiresAt, now + jwtExpirationMs) / bucketMs;
+        Bucket bucket = buckets[(int) (slot % buckets.length)];
+
+        // Exact entry first, so a Bloom hit can always be confirmed
+        revoked.put(token.substring(from), expiresAt);
+
+        long h1 = hash(token, from, 0x9E3779B97F4A7C15L);
+        long h2 = hash(token, from, 0xC2B2AE3D27D4EB4FL) | 1;
+        synchronized (bucket) {
+            if (bucket.slot != slot) {
+                bucket.clear();
+                bucket.slot = slot;
+            }
+            for (int i = 0; i < HASHES; i++) {
+                bucket.set((int) ((h1 + i * h2) & bitMask));
+            }
+        }
+        log.info("Access token revoked until {}", expiresAt);
+    }
+
+    // Hot path - runs on every authenticated request
+    public boolean isRevoked(String token) {
+        int from = signatureStart(token);
+        if (from < 0) {
+            return false;
+        }
+        long h1 = hash(token, from, 0x9E3779B97F4A7C15L);
+        long h2 = hash(token, from, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (Bucket bucket : buckets) {
+            if (bucket.mightContain(h1, h2, bitMask)) {
+                return confirm(token, from);
+            }
+        }
+        return false;
+    }
+
+    private boolean confirm(String token, int from) {
+        Long expiresAt = revoked.get(token.substring(from));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    // Buckets roll off at token expiry, so memory stays flat
+    @Scheduled(fixedDelayString = "${spring.app.revocationBucketMs:60000}")
+    public void rollOff() {
+        long now = System.currentTimeMillis();
+        long currentSlot = now / bucketMs;
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                if (bucket.slot >= 0 && bucket.slot < currentSlot) {
+                    bucket.clear();
+                    bucket.slot = -1;
+                }
+            }
+        }
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    // header.payload.signature -> index of signature, -1 when malformed
+    private static int signatureStart(String token) {
+        if (token == null) {
+            return -1;
+        }
+        int lastDot = token.lastIndexOf('.');
+        return lastDot < 0 || lastDot == token.length() - 1 ? -1 : lastDot + 1;
+    }
+
+    // 64-bit FNV-1a variant over the signature chars, finished with a murmur mix
+    private static long hash(String token, int from, long seed) {
+        long h = seed;
+        for (int i = from; i < token.length(); i++) {
+            h ^= token.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLongArray words;
+        private volatile long slot = -1;
+
+        private Bucket(int wordCount) {
+            this.words = new AtomicLongArray(wordCount);
+        }
+
+        private void set(int bit) {
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(index);
+            } while ((current & mask) == 0 && !words.compareAndSet(index, current, current | mask));
+        }
+
+        private boolean mightContain(long h1, long h2, int bitMask) {
+            if (slot < 0) {
+                return false;
+            }
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (int) ((h1 + i * h2) & bitMask);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void clear() {
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, 0L);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.project.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+
+import java.util.concurrent.TimeUnit;
+
+// Bounded cache of tokens whose signature has already been verified - every authenticated request reads it,
+// so lookups take no lock. Keyed by the signature segment of the token, entries die at the token's exp.
+class VerifiedTokenCache {
+
+    private final Cache<String, Entry> entries;
+
+    VerifiedTokenCache(int maxEntries) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String signature, Entry entry, long currentTime) {
+                        return untilExpiry(entry);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String signature, Entry entry, long currentTime, long currentDuration) {
+                        return untilExpiry(entry);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String signature, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    Claims get(String token) {
+        String signature = signatureOf(token);
+        if (signature == null) {
+            return null;
+        }
+        Entry entry = entries.getIfPresent(signature);
+        // Same signature must also mean the same header and payload
+        if (entry == null || !entry.token().equals(token)) {
+            return null;
+        }
+        return entry.claims();
+    }
+
+    void put(String token, Claims claims) {
+        String signature = signatureOf(token);
+        if (signature == null || claims.getExpiration() == null) {
+            return;
+        }
+        entries.put(signature, new Entry(token, claims, claims.getExpiration().getTime()));
+    }
+
+    void remove(String token) {
+        String signature = signatureOf(token);
+        if (signature == null) {
+            return;
+        }
+        entries.invalidate(signature);
+    }
+
+    long size() {
+        return entries.estimatedSize();
+    }
+
+    // exp is wall-clock, the cache times entries in nanos from now
+    private static long untilExpiry(Entry entry) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expiresAt() - System.currentTimeMillis()));
+    }
+
+    // header.payload.signature -> signature
+    private static String signatureOf(String token) {
+        int lastDot = token.lastIndexOf('.');
+        if (lastDot < 0 || lastDot == token.length() - 1) {
+            return null;
+        }
+        return token.substring(lastDot + 1);
+    }
+
+    private record Entry(String token, Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecommerce.project.security.password;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// Picks the BCrypt cost whose hash time is closest to the target on this machine.
+// Each cost step doubles the work, so one timed hash at the minimum cost is enough to extrapolate
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 14;
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMs) {
+        if (targetMs <= 0) {
+            return MIN_STRENGTH;
+        }
+
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        // first call warms up the JIT
+        encoder.encode("calibration");
+        long start = System.nanoTime();
+        encoder.encode("calibration");
+        double elapsedMs = Math.max((System.nanoTime() - start) / 1_000_000.0, 0.1);
+
+        int strength = MIN_STRENGTH + (int) Math.round(Math.log(targetMs / elapsedMs) / Math.log(2));
+        strength = Math.max(MIN_STRENGTH, Math.min(MAX_STRENGTH, strength));
+
+        log.info("BCrypt cost {} took {} ms, target {} ms -> using cost {}", MIN_STRENGTH, String.format("%.1f", elapsedMs), targetMs, strength);
+        return strength;
+    }
+}
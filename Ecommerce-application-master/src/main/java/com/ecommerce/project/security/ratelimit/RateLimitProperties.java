@@ -0,0 +1,43 @@
+package com.ecommerce.project.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "spring.app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Buckets untouched for this long are dropped - a full bucket holds no state worth keeping
+    private long idleEvictMs = 600000;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+
+        // Spring path pattern, e.g. /api/public/**
+        private String pattern;
+
+        private KeyType key = KeyType.IP;
+
+        // Burst size
+        private long capacity;
+
+        private double refillPerSecond;
+    }
+
+    public enum KeyType {
+        IP,
+        // Failed sign ins per client IP and username
+        USERNAME,
+        // Failed sign ins per username, from any address
+        ACCOUNT
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecommerce.project.security.ratelimit;
+
+import com.ecommerce.project.exceptions.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-rule tables of token buckets. ConcurrentHashMap is striped internally and reads are lock-free;
+// a bucket is only created on a client's first request and evicted once it has been idle long enough.
+@Slf4j
+@Component
+public class RateLimiter {
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    private List<CompiledRule> rules = List.of();
+
+    @PostConstruct
+    public void init() {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (rule.getCapacity() <= 0 || rule.getRefillPerSecond() <= 0) {
+                throw new IllegalStateException("Invalid rate limit rule for " + rule.getPattern());
+            }
+            compiled.add(new CompiledRule(rule));
+            log.info("Rate limit : {} by {} - burst {}, {} per second",
+                    rule.getPattern(), rule.getKey(), rule.getCapacity(), rule.getRefillPerSecond());
+        }
+        rules = List.copyOf(compiled);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && !rules.isEmpty();
+    }
+
+    // 0 when every matching rule let the request through, otherwise nanos until it may retry
+    public long tryAcquire(RateLimitProperties.KeyType keyType, String path, String key) {
+        return acquire(keyType, path, key, true);
+    }
+
+    private long acquire(RateLimitProperties.KeyType keyType, String path, String key, boolean take) {
+        if (!properties.isEnabled() || key == null) {
+            return 0;
+        }
+        PathContainer pathContainer = null;
+        long now = System.nanoTime();
+        for (CompiledRule rule : rules) {
+            if (rule.keyType != keyType) {
+                continue;
+            }
+            if (pathContainer == null) {
+                pathContainer = PathContainer.parsePath(path);
+            }
+            if (!rule.pattern.matches(pathContainer)) {
+                continue;
+            }
+            TokenBucket bucket = rule.buckets.get(key);
+            if (bucket == null) {
+                bucket = rule.buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+            }
+            long wait = take ? bucket.tryAcquire(now, rule.intervalNanos, rule.burstNanos)
+                    : bucket.waitNanos(now, rule.intervalNanos, rule.burstNanos);
+            if (wait > 0) {
+                log.debug("Rate limited {} {} on {}", keyType, key, rule.source);
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    // Sign in, once the body is read. Only failed attempts use up the buckets (failedSignIn), this just checks them.
+    // Keyed by address and username, so one client guessing is stopped early, and by username alone with a much
+    // larger burst, so guesses spread over many addresses still hit a per-account limit - which a stranger can
+    // only trip by failing that often, not in a handful of requests.
+    public void checkSignIn(String path, String ip, String username) {
+        long wait = Math.max(acquire(RateLimitProperties.KeyType.USERNAME, path, signInKey(ip, username), false),
+                acquire(RateLimitProperties.KeyType.ACCOUNT, path, username, false));
+        if (wait > 0) {
+            log.warn("Too many failed sign ins for username : {} from {}", username, ip);
+            throw new TooManyRequestsException("Too many attempts, try again later", retryAfterSeconds(wait));
+        }
+    }
+
+    public void failedSignIn(String path, String ip, String username) {
+        acquire(RateLimitProperties.KeyType.USERNAME, path, signInKey(ip, username), true);
+        acquire(RateLimitProperties.KeyType.ACCOUNT, path, username, true);
+    }
+
+    private static String signInKey(String ip, String username) {
+        return username == null ? null : ip + " " + username;
+    }
+
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.rate-limit.idle-evict-ms:600000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleEvictMs());
+        for (CompiledRule rule : rules) {
+            int before = rule.buckets.size();
+            rule.buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+            log.debug("Evicted {} idle buckets for {}", before - rule.buckets.size(), rule.source);
+        }
+    }
+
+    private static final class CompiledRule {
+
+        private final String source;
+        private final PathPattern pattern;
+        private final RateLimitProperties.KeyType keyType;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private CompiledRule(RateLimitProperties.Rule rule) {
+            this.source = rule.getPattern();
+            this.pattern = PathPatternParser.defaultInstance.parse(rule.getPattern());
+            this.keyType = rule.getKey();
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rule.getRefillPerSecond());
+            this.burstNanos = intervalNanos * rule.getCapacity();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.project.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket kept as a single "theoretical arrival time" (GCRA), so take and refill are one CAS.
+// Refill is lazy - it is the distance between now and the stored time, nothing runs in the background.
+final class TokenBucket {
+
+    private final AtomicLong arrivalTime;
+
+    TokenBucket(long now) {
+        this.arrivalTime = new AtomicLong(now);
+    }
+
+    // 0 when a token was taken, otherwise nanos until one is available
+    long tryAcquire(long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = arrivalTime.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Like tryAcquire, but leaves the bucket as it is
+    long waitNanos(long now, long intervalNanos, long burstNanos) {
+        return Math.max(0, Math.max(arrivalTime.get(), now) + intervalNanos - now - burstNanos);
+    }
+
+    // Fully refilled and not touched since
+    boolean isIdle(long now, long idleNanos) {
+        return arrivalTime.get() + idleNanos < now;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.project.security.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Opaque, single-use refresh tokens. Only the SHA-256 of a token is kept, next to its owner and expiry
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    @Value("${spring.app.refreshExpirationMs:604800000}")
+    private long refreshExpirationMs;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Map<String, RefreshToken> tokens = new ConcurrentHashMap<>();
+
+    public String create(String username) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        tokens.put(digest(token), new RefreshToken(username, System.currentTimeMillis() + refreshExpirationMs));
+        return token;
+    }
+
+    // Single use - the token is removed whether or not it is still valid
+    public Optional<String> consume(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken refreshToken = tokens.remove(digest(token));
+        if (refreshToken == null) {
+            log.warn("Unknown or already used refresh token");
+            return Optional.empty();
+        }
+        if (refreshToken.expiresAt() < System.currentTimeMillis()) {
+            log.info("Refresh token expired for user {}", refreshToken.username());
+            return Optional.empty();
+        }
+        return Optional.of(refreshToken.username());
+    }
+
+    // Consume, then hand out a replacement for the same user
+    public Optional<Rotation> rotate(String token) {
+        return consume(token).map(username -> new Rotation(username, create(username)));
+    }
+
+    public void revoke(String token) {
+        if (token != null && !token.isEmpty()) {
+            tokens.remove(digest(token));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.refreshPurgeIntervalMs:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = tokens.size();
+        tokens.values().removeIf(refreshToken -> refreshToken.expiresAt() < now);
+        log.debug("Purged {} expired refresh tokens", before - tokens.size());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(String username, String refreshToken) {
+    }
+
+    private record RefreshToken(String username, long expiresAt) {
+    }
+}
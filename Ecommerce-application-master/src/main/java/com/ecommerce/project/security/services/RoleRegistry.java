@@ -0,0 +1,36 @@
+package com.ecommerce.project.security.services;
+
+import com.ecommerce.project.model.AppRole;
+import com.ecommerce.project.model.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// AppRole -> Role, loaded once by the initData runner. Roles never change at runtime, so signup needs no role queries
+@Slf4j
+@Component
+public class RoleRegistry {
+
+    private volatile Map<AppRole, Role> roles = Collections.emptyMap();
+
+    public void load(List<Role> loadedRoles) {
+        EnumMap<AppRole, Role> byName = new EnumMap<>(AppRole.class);
+        loadedRoles.forEach(role -> byName.put(role.getRoleName(), role));
+        roles = Collections.unmodifiableMap(byName);
+        log.info("Role registry loaded : {}", roles.keySet());
+    }
+
+    // Shared, detached instance - User.roles does not cascade, so linking it only writes the role id
+    public Role get(AppRole appRole) {
+        Role role = roles.get(appRole);
+        if (role == null) {
+            log.error("Error : Role is not found {}", appRole);
+            throw new RuntimeException("Error : Role is not found");
+        }
+        return role;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.project.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Username -> UserDetailsImpl, size bounded with W-TinyLFU eviction and a TTL.
+// Metrics are published as cache.* with cache=userDetails
+@Slf4j
+@Component
+public class UserDetailsCache {
+
+    @Value("${spring.app.userCacheSize:10000}")
+    private long maximumSize;
+
+    @Value("${spring.app.userCacheTtlMs:600000}")
+    private long ttlMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, UserDetailsImpl> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    public UserDetailsImpl get(String username, Function<String, UserDetailsImpl> loader) {
+        return cache.get(username, loader);
+    }
+
+    // Call whenever a user's credentials or roles change
+    public void evict(String username) {
+        log.debug("Evicting cached user details for {}", username);
+        cache.invalidate(username);
+    }
+}
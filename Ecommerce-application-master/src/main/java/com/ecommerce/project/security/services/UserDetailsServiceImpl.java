@@ -4,23 +4,40 @@ import com.ecommerce.project.model.User;
 import com.ecommerce.project.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     UserRepository userRepository;
-    @Transactional
+
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    // No @Transactional here - a cache hit must not check out a connection
     @Override
     public UserDetailsImpl loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::loadFromDatabase);
+    }
+
+    private UserDetailsImpl loadFromDatabase(String username) {
         // User Repository
         User user = userRepository.findUserByUserName(username).orElseThrow(() -> new UsernameNotFoundException("User not found with username : " + username));
         return UserDetailsImpl.build(user);
     }
 
+    // Called by DaoAuthenticationProvider after a successful sign in when the stored hash needs upgrading
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findUserByUserName(userDetails.getUsername()).orElseThrow(() -> new UsernameNotFoundException("User not found with username : " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        userDetailsCache.evict(user.getUserName());
+        return UserDetailsImpl.build(user);
+    }
 
 
 
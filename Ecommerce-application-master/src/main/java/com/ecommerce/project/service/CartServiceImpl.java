@@ -40,6 +40,15 @@ public class CartServiceImpl implements CartService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     @Autowired
     ModelMapper modelMapper;
 
@@ -99,6 +108,9 @@ public class CartServiceImpl implements CartService {
         // Deduct product quantity and save
         product.setQuantity(product.getQuantity() - quantity);
         productRepository.save(product);
+        catalogCache.evictProduct(productId);
+        productFacetIndex.index(product);
+        catalogVersions.productChanged(productId, product.getCategory() == null ? null : product.getCategory().getCategoryId());
 
         // Ensure total price is not null
         cart.setTotalPrice((cart.getTotalPrice() != null ? cart.getTotalPrice() : 0)
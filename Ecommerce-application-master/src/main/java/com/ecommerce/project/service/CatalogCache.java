@@ -0,0 +1,170 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.payload.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through cache for public catalog reads: single products and product pages.
+// Pages live in a namespace (all products, one category, keyword search) whose generation is part of the key,
+// so a write that can change membership or order just moves the namespace on. A product changed in place
+// (stock, image) only drops its own entry and the cached pages that show it.
+@Slf4j
+@Component
+public class CatalogCache {
+
+    public static final String ALL_PRODUCTS = "products";
+    public static final String KEYWORDS = "keyword";
+
+    @Value("${spring.app.catalogCacheSize:10000}")
+    private long maximumSize;
+
+    @Value("${spring.app.catalogCacheTtlMs:60000}")
+    private long ttlMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    private Cache<String, Object> cache;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // productId -> keys of the cached pages showing it
+    private final Map<Long, Set<String>> pagesByProduct = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation - a load that overlaps one is served but not cached
+    private final AtomicLong writes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                // Size and TTL evictions - synchronous, so it cannot race a later put under the same key
+                .evictionListener((String key, Object value, RemovalCause cause) -> unlink(key, value))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog");
+    }
+
+    public static String category(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    public ProductDTO getProduct(Long productId, Supplier<ProductDTO> loader) {
+        return load("product:" + productId, loader);
+    }
+
+    public ProductResponse getPage(String namespace, String params, Supplier<ProductResponse> loader) {
+        return load(namespace + "@" + generation(namespace).get() + "|" + params, loader);
+    }
+
+    // Product changed in place - its entry and every page showing it
+    public void evictProduct(Long productId) {
+        invalidate(() -> {
+            cache.invalidate("product:" + productId);
+            Set<String> pages = pagesByProduct.remove(productId);
+            if (pages != null) {
+                for (String page : pages) {
+                    Object value = cache.asMap().remove(page);
+                    if (value != null) {
+                        unlink(page, value);
+                    }
+                }
+            }
+        });
+    }
+
+    // Membership or order may have changed - new generation, the old pages age out
+    public void evictPages(String... namespaces) {
+        log.debug("Evicting cached catalog pages {}", (Object) namespaces);
+        invalidate(() -> {
+            for (String namespace : namespaces) {
+                generation(namespace).incrementAndGet();
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Supplier<T> loader) {
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        // A miss on a hot key runs the query once - concurrent misses share its result. The write stamp is
+        // part of the flight key: a reader arriving after an invalidation never joins a query started before it
+        long stamp = writes.get();
+        return singleFlight.execute(key + "#" + stamp, () -> {
+            T value = loader.get();
+            if (writes.get() != stamp) {
+                return value;
+            }
+            cache.put(key, value);
+            for (Long productId : productIds(value)) {
+                pagesByProduct.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            // An invalidation between the check and here may have missed the entry
+            if (writes.get() != stamp) {
+                cache.invalidate(key);
+            }
+            return value;
+        });
+    }
+
+    // Runs now, and again after commit - a read in between would otherwise cache the old rows
+    private void invalidate(Runnable invalidation) {
+        writes.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writes.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private AtomicLong generation(String namespace) {
+        return generations.computeIfAbsent(namespace, n -> new AtomicLong());
+    }
+
+    private void unlink(String key, Object value) {
+        for (Long productId : productIds(value)) {
+            pagesByProduct.computeIfPresent(productId, (id, pages) -> {
+                pages.remove(key);
+                return pages.isEmpty() ? null : pages;
+            });
+        }
+    }
+
+    private static List<Long> productIds(Object value) {
+        if (value instanceof ProductResponse response && response.getContent() != null) {
+            return response.getContent().stream().map(ProductDTO::getProductId).toList();
+        }
+        return List.of();
+    }
+}
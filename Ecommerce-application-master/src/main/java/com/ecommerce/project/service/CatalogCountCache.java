@@ -0,0 +1,64 @@
+package com.ecommerce.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Row counts behind totalElements/totalPages. Loaded with one COUNT on first use, then adjusted
+// in place on insert and delete; the TTL re-counts now and then to correct any drift.
+@Slf4j
+@Component
+public class CatalogCountCache {
+
+    public static final String ALL_PRODUCTS = "products";
+    public static final String ALL_CATEGORIES = "categories";
+
+    @Value("${spring.app.countCacheTtlMs:300000}")
+    private long ttlMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, AtomicLong> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalogCounts");
+    }
+
+    public static String category(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    public long get(String key, Supplier<Long> counter) {
+        return cache.get(key, k -> new AtomicLong(counter.get())).get();
+    }
+
+    // Only counts already loaded are adjusted - a missing one is simply counted on next use
+    public void adjust(String key, long delta) {
+        AtomicLong count = cache.getIfPresent(key);
+        if (count != null) {
+            count.addAndGet(delta);
+        }
+    }
+
+    public void evict(String key) {
+        log.debug("Evicting cached count {}", key);
+        cache.invalidate(key);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.project.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version counters behind the catalog ETags. Every write bumps the product, its category and the
+// all-products counter (categories: the category and the category list), so a GET can be answered
+// with 304 from the counter alone. The startup epoch keeps ETags from before a restart from matching.
+@Slf4j
+@Component
+public class CatalogVersions {
+
+    public static final String ALL_PRODUCTS = "products";
+    public static final String ALL_CATEGORIES = "categories";
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // Lets a local reverse proxy serve a page for a few seconds, clients always revalidate
+    @Value("${spring.app.catalogSharedMaxAgeSeconds:5}")
+    private long sharedMaxAgeSeconds;
+
+    public static String product(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String category(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    // Read before the data is loaded - a write in between then only costs the client a refetch
+    public String eTag(String key) {
+        return "\"" + epoch + "-" + version(key).get() + "\"";
+    }
+
+    public CacheControl cacheControl() {
+        return CacheControl.maxAge(0, TimeUnit.SECONDS)
+                .sMaxAge(sharedMaxAgeSeconds, TimeUnit.SECONDS)
+                .cachePublic();
+    }
+
+    public void productChanged(Long productId, Long categoryId) {
+        if (categoryId != null) {
+            bump(product(productId), category(categoryId), ALL_PRODUCTS);
+        } else {
+            bump(product(productId), ALL_PRODUCTS);
+        }
+    }
+
+    // New products only - nothing has been served for them yet, so there is no product version to move
+    public void productsAdded(Long categoryId) {
+        bump(category(categoryId), ALL_PRODUCTS);
+    }
+
+    public void categoryChanged(Long categoryId) {
+        bump(category(categoryId), ALL_CATEGORIES);
+    }
+
+    // Bumped now and again after commit - a read in between would otherwise tag old rows with the new version
+    private void bump(String... keys) {
+        increment(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(keys);
+                }
+            });
+        }
+    }
+
+    private void increment(String... keys) {
+        for (String key : keys) {
+            log.debug("Catalog version {} is now {}", key, version(key).incrementAndGet());
+        }
+    }
+
+    private AtomicLong version(String key) {
+        return versions.computeIfAbsent(key, k -> new AtomicLong());
+    }
+}
@@ -3,17 +3,24 @@ package com.ecommerce.project.service;
 import com.ecommerce.project.exceptions.APIException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
 import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
 import com.ecommerce.project.payload.CategoryDTO;
 import com.ecommerce.project.payload.CategoryResponse;
 import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.utils.PageCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -27,8 +34,29 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private CatalogCountCache catalogCountCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+
     @Override
-    public CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+    public CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals) {
 
 
         log.debug("Fetching all categories from database.");
@@ -37,8 +65,12 @@ public class CategoryServiceImpl implements CategoryService {
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
+        if (cursor != null) {
+            return getCategoriesByCursor(pageSize, sortByAndOrder, cursor);
+        }
+
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Category> categoryPage = categoryRepository.findAll(pageDetails);
+        Slice<Category> categoryPage = categoryRepository.findSliceBy(pageDetails);
 
         List<Category> categories = categoryPage.getContent();
         if (categories.isEmpty()) {
@@ -59,14 +91,42 @@ public class CategoryServiceImpl implements CategoryService {
         categoryResponse.setContent(categoryDTOS);
         categoryResponse.setPageNumber(categoryPage.getNumber());
         categoryResponse.setPageSize(categoryPage.getSize());
-        categoryResponse.setTotalElements(categoryPage.getTotalElements());
-        categoryResponse.setTotalPages(categoryPage.getTotalPages());
-        categoryResponse.setLastPage(categoryPage.isLast());
+        categoryResponse.setLastPage(!categoryPage.hasNext());
+        if (withTotals) {
+            long totalElements = catalogCountCache.get(CatalogCountCache.ALL_CATEGORIES, categoryRepository::count);
+            categoryResponse.setTotalElements(totalElements);
+            categoryResponse.setTotalPages((int) ((totalElements + pageSize - 1) / pageSize));
+        }
 
 
         return categoryResponse;
     }
 
+    // Keyset page - seeks past the cursor, no OFFSET and no COUNT
+    private CategoryResponse getCategoriesByCursor(Integer pageSize, Sort sort, String cursor) {
+
+        Window<Category> window = categoryRepository.findAllBy(
+                PageCursor.decode(cursor, sort, Category.class), sort, Limit.of(pageSize));
+        if (window.isEmpty()) {
+
+            log.warn("No category available into database ");
+            throw new APIException("No category created till now.");
+        }
+
+        List<CategoryDTO> categoryDTOS = window.getContent().stream()
+                .map(category -> modelMapper.map(category, CategoryDTO.class))
+                .toList();
+
+        CategoryResponse categoryResponse = new CategoryResponse();
+        categoryResponse.setContent(categoryDTOS);
+        categoryResponse.setPageSize(pageSize);
+        categoryResponse.setLastPage(!window.hasNext());
+        if (window.hasNext()) {
+            categoryResponse.setNextCursor(PageCursor.encode(window.positionAt(window.size() - 1), sort));
+        }
+        return categoryResponse;
+    }
+
     @Override
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
 
@@ -81,12 +141,16 @@ public class CategoryServiceImpl implements CategoryService {
 
         }
         Category savedCategory = categoryRepository.save(category);
+        catalogCountCache.adjust(CatalogCountCache.ALL_CATEGORIES, 1);
+        catalogVersions.categoryChanged(savedCategory.getCategoryId());
 
         log.info("Category created successfully  {}", savedCategory);
         return modelMapper.map(savedCategory, CategoryDTO.class);
     }
 
+    // The products' image references are released in the same transaction as the delete
     @Override
+    @Transactional
     public CategoryDTO deleteCategory(Long categoryId) {
 
 
@@ -100,7 +164,24 @@ public class CategoryServiceImpl implements CategoryService {
                 });
 
 
+        // Products go with the category (cascade) - drop them from the search index too
+        List<Long> productIds = category.getProducts().stream().map(Product::getProductId).toList();
         categoryRepository.delete(category);
+        // A product still in an order or cart fails here, before anything outside the database changed
+        categoryRepository.flush();
+        category.getProducts().forEach(product -> imageBlobStore.release(product.getImage()));
+        productSuggestIndex.productsChanged();
+        afterCommit(() -> {
+            productSearchIndex.remove(productIds);
+            productFacetIndex.remove(productIds);
+            catalogCountCache.adjust(CatalogCountCache.ALL_CATEGORIES, -1);
+            catalogCountCache.adjust(CatalogCountCache.ALL_PRODUCTS, -productIds.size());
+            catalogCountCache.evict(CatalogCountCache.category(categoryId));
+        });
+        productIds.forEach(catalogCache::evictProduct);
+        catalogCache.evictPages(CatalogCache.ALL_PRODUCTS, CatalogCache.KEYWORDS, CatalogCache.category(categoryId));
+        catalogVersions.categoryChanged(categoryId);
+        productIds.forEach(productId -> catalogVersions.productChanged(productId, categoryId));
 
         log.info("Category is delete successfully with category Id :{}", categoryId);
         return modelMapper.map(category, CategoryDTO.class);
@@ -122,8 +203,23 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = modelMapper.map(categoryDTO, Category.class);
         category.setCategoryId(categoryId);
         savedCategory = categoryRepository.save(category);
+        catalogVersions.categoryChanged(categoryId);
 
         log.info("Category updated successfully :{}", savedCategory);
         return modelMapper.map(savedCategory, CategoryDTO.class);
     }
+
+    // The search indexes and cached counts are not transactional - touched only once the delete is committed
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
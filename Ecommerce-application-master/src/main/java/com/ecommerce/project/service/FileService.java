@@ -3,7 +3,10 @@ package com.ecommerce.project.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 public interface FileService {
     String uploadImage(String path, MultipartFile file) throws IOException;
+
+    Path getImage(String path, String fileName) throws IOException;
 }
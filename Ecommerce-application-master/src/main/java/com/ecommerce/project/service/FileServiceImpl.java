@@ -1,39 +1,37 @@
 package com.ecommerce.project.service;
 
 import com.ecommerce.project.exceptions.APIException;
+import com.ecommerce.project.exceptions.ResourceNotFoundException;
 import lombok.extern.java.Log;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Service
 public class FileServiceImpl implements FileService {
 
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]*\\.[A-Za-z0-9]{1,10}");
+
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+
     @Override
     public String uploadImage(String path, MultipartFile file) throws IOException {
         try {
 
-            String originalFileName = file.getOriginalFilename();
-
-
-            String randomId = UUID.randomUUID().toString();
-            String fileName = randomId.concat(originalFileName.substring(originalFileName.lastIndexOf('.')));
+            // Named by content - an image already on disk is reused rather than written again
+            String fileName = imageBlobStore.store(path, file.getInputStream(), file.getOriginalFilename());
             String filePath = path + File.separator + fileName;
 
-
-            File folder = new File(path);
-            if (!folder.exists())
-                folder.mkdir();
-
-            Files.copy(file.getInputStream(), Paths.get(filePath));
-
             log.info("Image saved successfully on this path , {}", filePath);
             return fileName;
 
@@ -44,4 +42,24 @@ public class FileServiceImpl implements FileService {
 
         }
     }
+
+    // Plain file names only, and the resolved file must still sit inside the image folder
+    @Override
+    public Path getImage(String path, String fileName) throws IOException {
+        if (!SAFE_FILE_NAME.matcher(fileName).matches()) {
+            log.warn("Rejected image file name : {}", fileName);
+            throw new ResourceNotFoundException("Image", "fileName", fileName);
+        }
+        Path folder = Paths.get(path).toAbsolutePath().normalize();
+        Path image = folder.resolve(fileName).normalize();
+        if (!image.startsWith(folder) || !Files.isRegularFile(image)) {
+            throw new ResourceNotFoundException("Image", "fileName", fileName);
+        }
+        // Symlinks must not lead out of the folder either
+        if (!image.toRealPath().startsWith(folder.toRealPath())) {
+            log.warn("Rejected image outside the image folder : {}", fileName);
+            throw new ResourceNotFoundException("Image", "fileName", fileName);
+        }
+        return image.toRealPath();
+    }
 }
@@ -0,0 +1,242 @@
+package com.ecommerce.project.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Small, frequently requested image files held off-heap, so serving them needs no open/read per request and
+// each entry costs the heap only a few small objects. The memory is one direct slab of the whole budget,
+// allocated once and cut into fixed pages - an image takes as many pages as it needs, in any order, so the
+// slab never fragments, and an evicted image's pages go straight back on the free list, no GC involved.
+// Caffeine weighs entries by their pages and evicts with W-TinyLFU, so an image has to be asked for more
+// often than what it would displace to stay.
+@Component
+public class HotImageCache {
+
+    private static final int PAGE_SIZE = 16 * 1024;
+
+    // Off-heap budget across all cached images - 0 turns the cache off
+    @Value("${spring.app.hotImageCacheBytes:67108864}")
+    private long budgetBytes;
+
+    // Larger files go out through sendfile, which already streams them from the page cache
+    @Value("${spring.app.hotImageMaxFileBytes:262144}")
+    private long maxFileBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, CachedImage> cache;
+
+    private ByteBuffer slab;
+    private ByteBuffer readOnlySlab;
+
+    // Guarded by pageLock - page numbers not held by any image
+    private final Object pageLock = new Object();
+    private int[] freePages;
+    private int freeCount;
+
+    // Bytes of the slab held by images - cached ones and evicted ones still being written
+    private final AtomicLong residentBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        long maxFilePages = (maxFileBytes + PAGE_SIZE - 1) / PAGE_SIZE;
+        long pageCount = Math.min(budgetBytes, Integer.MAX_VALUE) / PAGE_SIZE;
+        // Room for the largest file on top of what the cache keeps - a load always finds free pages
+        // before Caffeine evicts to make up for it
+        long maximumWeight = (pageCount - maxFilePages) * PAGE_SIZE;
+        if (budgetBytes > 0 && maximumWeight <= 0) {
+            throw new IllegalStateException("Hot image cache budget must be larger than spring.app.hotImageMaxFileBytes");
+        }
+        if (budgetBytes <= 0) {
+            pageCount = 0;
+            maximumWeight = 0;
+        }
+        slab = ByteBuffer.allocateDirect((int) (pageCount * PAGE_SIZE));
+        readOnlySlab = slab.asReadOnlyBuffer();
+        freePages = new int[(int) pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            freePages[i] = i;
+        }
+        freeCount = (int) pageCount;
+
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((String fileName, CachedImage image) -> image.pages.length * PAGE_SIZE)
+                // On the evicting thread, so the pages are back before the next load
+                .executor(Runnable::run)
+                .removalListener((String fileName, CachedImage image, RemovalCause cause) -> {
+                    if (image != null) {
+                        image.release();
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "hotImages");
+        Gauge.builder("images.hot.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of cacheable image requests served from the hot image cache")
+                .register(meterRegistry);
+        Gauge.builder("images.hot.resident.bytes", residentBytes, AtomicLong::get)
+                .description("Off-heap bytes holding images, including evicted images still being written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // The file's bytes, or null when they are not cached (too large, cache off, no free pages) - close the
+    // lease once they are written, the pages are not reused before that. Size and mtime come from the caller's
+    // stat - a file replaced in place (default.png) is read again.
+    public Lease get(String fileName, Path image, long size, long lastModified) throws IOException {
+        if (budgetBytes <= 0 || size > maxFileBytes || size == 0) {
+            return null;
+        }
+        // Quietly - the stats behind the hit ratio count the get below once per request
+        CachedImage stale = cache.policy().getIfPresentQuietly(fileName);
+        if (stale != null && (stale.size != size || stale.lastModified != lastModified)) {
+            cache.asMap().remove(fileName, stale);
+        }
+        CachedImage cached;
+        try {
+            cached = cache.get(fileName, key -> load(image, lastModified));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Changed again while it was being read, or evicted just now - serve it from disk this time
+        if (cached == null || cached.size != size || cached.lastModified != lastModified || !cached.retain()) {
+            return null;
+        }
+        return new Lease(cached);
+    }
+
+    // Null when the file grew past the cacheable size or the pages are all taken - not cached, not an error
+    private CachedImage load(Path image, long lastModified) {
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxFileBytes) {
+                return null;
+            }
+            int[] pages = allocate((int) ((size + PAGE_SIZE - 1) / PAGE_SIZE));
+            if (pages == null) {
+                return null;
+            }
+            try {
+                long read = 0;
+                for (int page : pages) {
+                    ByteBuffer buffer = slab.slice(page * PAGE_SIZE, PAGE_SIZE);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) == -1) {
+                            break;
+                        }
+                    }
+                    read += buffer.position();
+                }
+                // Shrunk while it was read - the entry matches no caller's stat, so it is never served
+                return new CachedImage(pages, read, lastModified);
+            } catch (IOException | RuntimeException e) {
+                free(pages);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int[] allocate(int count) {
+        synchronized (pageLock) {
+            if (freeCount < count) {
+                return null;
+            }
+            freeCount -= count;
+            int[] pages = new int[count];
+            System.arraycopy(freePages, freeCount, pages, 0, count);
+            residentBytes.addAndGet((long) count * PAGE_SIZE);
+            return pages;
+        }
+    }
+
+    private void free(int[] pages) {
+        synchronized (pageLock) {
+            System.arraycopy(pages, 0, freePages, freeCount, pages.length);
+            freeCount += pages.length;
+            residentBytes.addAndGet(-(long) pages.length * PAGE_SIZE);
+        }
+    }
+
+    // A cached image, pinned until it is closed
+    public final class Lease implements AutoCloseable {
+
+        private final CachedImage image;
+
+        private Lease(CachedImage image) {
+            this.image = image;
+        }
+
+        // Bytes from start (inclusive) to end (exclusive), page by page, straight from the slab
+        public void writeTo(WritableByteChannel out, long start, long end) throws IOException {
+            for (long position = start; position < end; ) {
+                int offset = (int) (position % PAGE_SIZE);
+                int length = (int) Math.min(PAGE_SIZE - offset, end - position);
+                ByteBuffer buffer = readOnlySlab.slice(image.pages[(int) (position / PAGE_SIZE)] * PAGE_SIZE + offset, length);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                position += length;
+            }
+        }
+
+        @Override
+        public void close() {
+            image.release();
+        }
+    }
+
+    private final class CachedImage {
+
+        private final int[] pages;
+        private final long size;
+        private final long lastModified;
+        // One for the cache, one per open lease - the pages are freed when the last is released
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private CachedImage(int[] pages, long size, long lastModified) {
+            this.pages = pages;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        // False once freed - an entry evicted between the lookup and here
+        private boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                free(pages);
+            }
+        }
+    }
+}
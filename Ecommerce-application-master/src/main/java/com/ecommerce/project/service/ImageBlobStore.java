@@ -0,0 +1,262 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.APIException;
+import com.ecommerce.project.model.ImageBlob;
+import com.ecommerce.project.repositories.ImageBlobRepository;
+import com.ecommerce.project.utils.ImageVariants;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Content-addressed image files: an upload is hashed while it is copied to a temp file and renamed to
+// <sha256>.<ext>, so the same photo uploaded for many products is stored once. image_blobs counts the
+// products pointing at each file; the sweeper deletes files nobody points at once they are old enough.
+// Storing, reusing and sweeping one name happen under the same lock stripe, and storing refreshes the
+// file's mtime, so the sweeper never deletes a file between an upload and the product update that follows.
+@Slf4j
+@Component
+public class ImageBlobStore {
+
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,10}");
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+    private static final String TEMP_SUFFIX = ".upload.tmp";
+    private static final int STRIPES = 64;
+    private static final int SWEEP_BATCH_SIZE = 500;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${project.image}")
+    private String path;
+
+    // Unreferenced files younger than this are left alone - covers upload -> product update, and clock skew
+    @Value("${spring.app.imageSweepGraceMs:3600000}")
+    private long graceMs;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate newTransaction;
+
+    private final Lock[] stripes = new Lock[STRIPES];
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        // The blob row must exist even if the caller's transaction rolls back - the sweeper then cleans it up
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Single pass, never buffered whole: the stream is hashed on its way to disk
+    public String store(String path, InputStream content, String originalFileName) throws IOException {
+        String extension = extension(originalFileName);
+        Path folder = Paths.get(path);
+        Files.createDirectories(folder);
+        Path temp = Files.createTempFile(folder, "image", TEMP_SUFFIX);
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return publish(folder, temp, HexFormat.of().formatHex(digest.digest()) + "." + extension, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // A file already complete on the same file system (a chunked upload) - read once to hash, then renamed,
+    // never copied. The file is consumed either way.
+    public String adopt(String path, Path file, String originalFileName) throws IOException {
+        String extension = extension(originalFileName);
+        Path folder = Paths.get(path);
+        try {
+            MessageDigest digest = sha256();
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (channel.read(buffer) != -1) {
+                    digest.update(buffer.flip());
+                    buffer.clear();
+                }
+            }
+            return publish(folder, file, HexFormat.of().formatHex(digest.digest()) + "." + extension, Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Extension of an upload's original name, lower-cased - the stored name keeps it for the content type
+    public static String extension(String originalFileName) {
+        int dot = originalFileName == null ? -1 : originalFileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : originalFileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (!EXTENSION.matcher(extension).matches()) {
+            throw new APIException("Image file name must end in an extension of up to 10 letters or digits");
+        }
+        return extension;
+    }
+
+    // Names from before content addressing (UUIDs, default.png) are not counted and never swept.
+    // A missing row would leave the product pointing at a file the sweeper may delete - the caller's
+    // transaction is rolled back instead.
+    public void acquire(String fileName) {
+        if (isBlob(fileName) && imageBlobRepository.adjustRefCount(fileName, 1) == 0) {
+            throw new APIException("Image " + fileName + " is not in the image store");
+        }
+    }
+
+    public void release(String fileName) {
+        if (isBlob(fileName) && imageBlobRepository.adjustRefCount(fileName, -1) == 0) {
+            log.warn("Image blob {} was not referenced", fileName);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.imageSweepIntervalMs:3600000}",
+            initialDelayString = "${spring.app.imageSweepIntervalMs:3600000}")
+    public void sweep() {
+        long start = System.currentTimeMillis();
+        long cutoff = start - graceMs;
+        Path folder = Paths.get(path);
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        int removed = 0;
+        try {
+            // Released by every product
+            String afterName = "";
+            List<String> fileNames;
+            do {
+                fileNames = imageBlobRepository.findUnreferencedAfter(afterName, PageRequest.ofSize(SWEEP_BATCH_SIZE));
+                for (String fileName : fileNames) {
+                    afterName = fileName;
+                    if (removeIfUnused(folder, fileName, cutoff, true)) {
+                        removed++;
+                    }
+                }
+            } while (fileNames.size() == SWEEP_BATCH_SIZE);
+
+            // Files without a row, and uploads cut off mid-copy
+            try (Stream<Path> files = Files.list(folder)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(TEMP_SUFFIX)) {
+                        if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else if (BLOB_NAME.matcher(fileName).matches() && !imageBlobRepository.existsById(fileName)
+                            && removeIfUnused(folder, fileName, cutoff, false)) {
+                        removed++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Image sweep of {} failed : {}", folder, e.getMessage());
+        }
+        log.info("Image sweep removed {} unreferenced images in {} ms", removed, System.currentTimeMillis() - start);
+    }
+
+    private boolean removeIfUnused(Path folder, String fileName, long cutoff, boolean registered) throws IOException {
+        Lock lock = stripe(fileName);
+        lock.lock();
+        try {
+            Path file = folder.resolve(fileName);
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toMillis() >= cutoff) {
+                return false;
+            }
+            // Re-checked under the lock - a reference taken since the listing wins
+            if (registered ? imageBlobRepository.deleteIfUnreferenced(fileName) == 0
+                    : imageBlobRepository.existsById(fileName)) {
+                return false;
+            }
+            Files.deleteIfExists(file);
+            for (String variant : ImageVariants.SIZES.keySet()) {
+                Files.deleteIfExists(folder.resolve(ImageVariants.variantName(fileName, variant)));
+            }
+            log.info("Removed unreferenced image {}", fileName);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String publish(Path folder, Path file, String fileName, long size) throws IOException {
+        Path target = folder.resolve(fileName);
+        Lock lock = stripe(fileName);
+        lock.lock();
+        try {
+            if (Files.exists(target)) {
+                // Same bytes already stored - a fresh mtime keeps the sweeper off it until the product points at it
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                log.info("Image content already stored as {}, reusing it", fileName);
+            } else {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            register(fileName, size);
+        } finally {
+            lock.unlock();
+        }
+        return fileName;
+    }
+
+    private void register(String fileName, long size) {
+        if (imageBlobRepository.existsById(fileName)) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status ->
+                    imageBlobRepository.save(new ImageBlob(fileName, 0, size, Instant.now())));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance registered the same content first
+            log.debug("Image blob {} registered concurrently", fileName);
+        }
+    }
+
+    private Lock stripe(String fileName) {
+        return stripes[Math.floorMod(fileName.hashCode(), STRIPES)];
+    }
+
+    private static boolean isBlob(String fileName) {
+        return fileName != null && BLOB_NAME.matcher(fileName).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
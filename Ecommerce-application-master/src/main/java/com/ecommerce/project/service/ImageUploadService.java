@@ -0,0 +1,20 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.payload.ImageUploadDTO;
+import com.ecommerce.project.payload.ImageUploadRequest;
+import com.ecommerce.project.payload.ProductDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImageUploadService {
+    ImageUploadDTO startUpload(Long productId, ImageUploadRequest request) throws IOException;
+
+    ImageUploadDTO getUpload(String uploadId);
+
+    ImageUploadDTO writeChunk(String uploadId, int chunkIndex, String sha256, InputStream body) throws IOException;
+
+    ProductDTO completeUpload(String uploadId) throws IOException;
+
+    void cancelUpload(String uploadId) throws IOException;
+}
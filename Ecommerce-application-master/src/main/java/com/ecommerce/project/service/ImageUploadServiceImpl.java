@@ -0,0 +1,355 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.APIException;
+import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.exceptions.ServiceBusyException;
+import com.ecommerce.project.payload.ImageUploadDTO;
+import com.ecommerce.project.payload.ImageUploadRequest;
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.utils.AuthUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Chunked, resumable image uploads. Each session owns a part file in <image folder>/uploads; every chunk
+// is written with positional writes straight to its offset, so chunks may arrive in any order, in
+// parallel, and a retry resends only what is missing. Completing hashes the part file and renames it
+// into the image store - the bytes are written to disk once and never copied.
+// Sessions live in memory: a restart drops them (and their part files) and clients start over.
+@Slf4j
+@Service
+public class ImageUploadServiceImpl implements ImageUploadService {
+
+    private static final String UPLOAD_FOLDER = "uploads";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${project.image}")
+    private String path;
+
+    @Value("${spring.app.imageUploadChunkSize:1048576}")
+    private int chunkSize;
+
+    @Value("${spring.app.imageUploadMaxBytes:52428800}")
+    private long maxBytes;
+
+    @Value("${spring.app.imageUploadMaxSessions:100}")
+    private int maxSessions;
+
+    @Value("${spring.app.imageUploadTtlMs:86400000}")
+    private long ttlMs;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+
+    @Autowired
+    private AuthUtil authUtil;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    // Part files of sessions lost in a restart can never be completed
+    @PostConstruct
+    public void init() throws IOException {
+        Path folder = uploadFolder();
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(this::discard);
+    }
+
+    @Override
+    public ImageUploadDTO startUpload(Long productId, ImageUploadRequest request) throws IOException {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product", "productId", productId);
+        }
+        if (request.getSize() > maxBytes) {
+            throw new APIException("Image must not be larger than " + maxBytes + " bytes");
+        }
+        // Checked before any bytes are sent rather than at the end
+        ImageBlobStore.extension(request.getFileName());
+        if (sessions.size() >= maxSessions) {
+            throw new ServiceBusyException("Too many image uploads in progress", 60);
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path folder = uploadFolder();
+        Files.createDirectories(folder);
+        Path file = folder.resolve(uploadId + PART_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        int chunkCount = (int) ((request.getSize() + chunkSize - 1) / chunkSize);
+        UploadSession session = new UploadSession(uploadId, productId, authUtil.loggedInUserId(),
+                request.getFileName(), request.getSize(), chunkCount, file, channel);
+        sessions.put(uploadId, session);
+
+        log.info("Image upload {} started for product {} : {} bytes in {} chunks", uploadId, productId,
+                request.getSize(), chunkCount);
+        return status(session);
+    }
+
+    @Override
+    public ImageUploadDTO getUpload(String uploadId) {
+        return status(session(uploadId));
+    }
+
+    @Override
+    public ImageUploadDTO writeChunk(String uploadId, int chunkIndex, String sha256, InputStream body)
+            throws IOException {
+        UploadSession session = session(uploadId);
+        if (chunkIndex < 0 || chunkIndex >= session.chunkCount) {
+            throw new APIException("Chunk index must be between 0 and " + (session.chunkCount - 1));
+        }
+        byte[] expected = parseSha256(sha256);
+
+        synchronized (session) {
+            if (session.completing) {
+                throw new APIException("Upload " + uploadId + " is already being completed");
+            }
+            // A retry of a chunk that did arrive - nothing to write again
+            if (session.received.get(chunkIndex)) {
+                if (!Arrays.equals(session.chunkHashes[chunkIndex], expected)) {
+                    throw new APIException("Chunk " + chunkIndex + " was already received with a different checksum");
+                }
+                session.touch();
+                return status(session);
+            }
+            if (session.writing.get(chunkIndex)) {
+                throw new APIException("Chunk " + chunkIndex + " is already being uploaded");
+            }
+            session.writing.set(chunkIndex);
+        }
+
+        boolean stored = false;
+        try {
+            long position = (long) chunkIndex * chunkSize;
+            long length = Math.min(chunkSize, session.size - position);
+            MessageDigest digest = sha256();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            long written = 0;
+            int read;
+            // Reads one byte past the chunk so an over-long body is caught instead of truncated
+            while ((read = body.read(bytes, 0, (int) Math.min(bytes.length, length - written + 1))) != -1) {
+                if (written + read > length) {
+                    throw new APIException("Chunk " + chunkIndex + " is longer than " + length + " bytes");
+                }
+                digest.update(bytes, 0, read);
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    written += session.channel.write(buffer, position + written);
+                }
+            }
+            if (written != length) {
+                throw new APIException("Chunk " + chunkIndex + " has " + written + " bytes, expected " + length);
+            }
+            // A mismatch leaves the chunk missing - the retry overwrites the same range
+            if (!MessageDigest.isEqual(digest.digest(), expected)) {
+                throw new APIException("Chunk " + chunkIndex + " does not match its SHA-256");
+            }
+            stored = true;
+        } finally {
+            synchronized (session) {
+                session.writing.clear(chunkIndex);
+                if (stored) {
+                    session.received.set(chunkIndex);
+                    session.chunkHashes[chunkIndex] = expected;
+                }
+                session.touch();
+            }
+        }
+        return status(session);
+    }
+
+    @Override
+    public ProductDTO completeUpload(String uploadId) throws IOException {
+        UploadSession session = session(uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new APIException("Upload " + uploadId + " is already being completed");
+            }
+            if (!session.writing.isEmpty()) {
+                throw new APIException("Upload " + uploadId + " still has chunks being written");
+            }
+            int missing = session.chunkCount - session.received.cardinality();
+            if (missing > 0) {
+                throw new APIException("Upload " + uploadId + " still misses " + missing + " chunks");
+            }
+            session.completing = true;
+        }
+        sessions.remove(uploadId);
+
+        String fileName;
+        try {
+            session.channel.force(false);
+            session.channel.close();
+            fileName = imageBlobStore.adopt(path, session.file, session.fileName);
+        } catch (IOException | RuntimeException e) {
+            discard(session);
+            throw e;
+        }
+        log.info("Image upload {} completed as {}", uploadId, fileName);
+        // A product deleted meanwhile leaves the blob unreferenced - the image sweep removes it
+        return productService.updateProductImage(session.productId, fileName);
+    }
+
+    @Override
+    public void cancelUpload(String uploadId) {
+        UploadSession session = session(uploadId);
+        synchronized (session) {
+            if (session.completing) {
+                throw new APIException("Upload " + uploadId + " is already being completed");
+            }
+            session.completing = true;
+        }
+        sessions.remove(uploadId);
+        discard(session);
+        log.info("Image upload {} cancelled", uploadId);
+    }
+
+    // Abandoned sessions hold an open file and up to maxBytes of disk
+    @Scheduled(fixedDelayString = "${spring.app.imageUploadExpiryCheckMs:600000}")
+    public void expireUploads() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        for (UploadSession session : sessions.values()) {
+            synchronized (session) {
+                if (session.completing || session.lastActivity >= cutoff || !session.writing.isEmpty()) {
+                    continue;
+                }
+                session.completing = true;
+            }
+            sessions.remove(session.uploadId);
+            discard(session);
+            log.info("Image upload {} expired", session.uploadId);
+        }
+    }
+
+    // Someone else's upload id is treated as unknown
+    private UploadSession session(String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null || !session.userId.equals(authUtil.loggedInUserId())) {
+            throw new ResourceNotFoundException("Upload", "uploadId", uploadId);
+        }
+        return session;
+    }
+
+    private void discard(UploadSession session) {
+        try {
+            session.channel.close();
+            Files.deleteIfExists(session.file);
+        } catch (IOException e) {
+            log.warn("Failed to delete part file of upload {} : {}", session.uploadId, e.getMessage());
+        }
+    }
+
+    private ImageUploadDTO status(UploadSession session) {
+        List<Integer> missingChunks = new ArrayList<>();
+        synchronized (session) {
+            for (int i = session.received.nextClearBit(0); i < session.chunkCount; i = session.received.nextClearBit(i + 1)) {
+                missingChunks.add(i);
+            }
+        }
+        return new ImageUploadDTO(session.uploadId, session.productId, session.fileName, session.size,
+                chunkSize, session.chunkCount, missingChunks);
+    }
+
+    private Path uploadFolder() {
+        // Inside the image folder - same file system, so completing is a rename
+        return Paths.get(path, UPLOAD_FOLDER);
+    }
+
+    private static byte[] parseSha256(String sha256) {
+        if (sha256 == null || sha256.length() != 64) {
+            throw new APIException("Chunk checksum must be a hex SHA-256");
+        }
+        try {
+            return HexFormat.of().parseHex(sha256);
+        } catch (IllegalArgumentException e) {
+            throw new APIException("Chunk checksum must be a hex SHA-256");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class UploadSession {
+        private final String uploadId;
+        private final Long productId;
+        private final Long userId;
+        private final String fileName;
+        private final long size;
+        private final int chunkCount;
+        private final Path file;
+        // Positional writes to distinct ranges are safe from several threads at once
+        private final FileChannel channel;
+
+        // Guarded by the session
+        private final BitSet received = new BitSet();
+        private final BitSet writing = new BitSet();
+        private final byte[][] chunkHashes;
+        private boolean completing;
+        private long lastActivity = System.currentTimeMillis();
+
+        private UploadSession(String uploadId, Long productId, Long userId, String fileName, long size,
+                              int chunkCount, Path file, FileChannel channel) {
+            this.uploadId = uploadId;
+            this.productId = productId;
+            this.userId = userId;
+            this.fileName = fileName;
+            this.size = size;
+            this.chunkCount = chunkCount;
+            this.file = file;
+            this.channel = channel;
+            this.chunkHashes = new byte[chunkCount][];
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+}
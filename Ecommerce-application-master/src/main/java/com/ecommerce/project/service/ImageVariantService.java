@@ -0,0 +1,292 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.utils.ImageVariants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Resized copies of product images (ImageVariants.SIZES), written next to the original on a bounded pool.
+// A variant that exists is never redone, and each is written to a temp file and moved into place,
+// so a crash leaves at most a temp file - startup deletes those and queues whatever is still missing.
+@Slf4j
+@Component
+public class ImageVariantService {
+
+    private static final String TEMP_SUFFIX = ".variant.tmp";
+    private static final float JPEG_QUALITY = 0.85f;
+    // Decoded at 4 bytes per pixel - larger uploads are left without variants rather than risk the heap
+    private static final long MAX_PIXELS = 40_000_000L;
+
+    @Value("${project.image}")
+    private String path;
+
+    @Value("${spring.app.imageVariantThreads:2}")
+    private int threads;
+
+    @Value("${spring.app.imageVariantQueueSize:1000}")
+    private int queueSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    // Originals queued or being processed - a second request for the same image is a no-op
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Originals that can never get variants (unknown format, too large) - not retried on every fallback request
+    private final Set<String> unsupported = ConcurrentHashMap.newKeySet();
+
+    private Timer latency;
+    private Timer generation;
+    private Counter failures;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "imageVariants");
+
+        latency = Timer.builder("image.variants.latency")
+                .description("Time from queueing an image to all its variants being on disk")
+                .register(meterRegistry);
+        generation = Timer.builder("image.variants.generation")
+                .description("Time spent decoding, resizing and writing one image's variants")
+                .register(meterRegistry);
+        failures = Counter.builder("image.variants.failures")
+                .description("Images whose variants could not be generated")
+                .register(meterRegistry);
+        rejected = Counter.builder("image.variants.rejected")
+                .description("Images not queued because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Temp files of an interrupted run go, every original with a missing variant is queued again
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        Path folder = Paths.get(path);
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        int queued = 0;
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (Files.isRegularFile(file) && !ImageVariants.isVariant(fileName)
+                        && !missingVariants(folder, fileName).isEmpty() && submit(fileName)) {
+                    queued++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to scan {} for missing image variants : {}", folder, e.getMessage());
+        }
+        log.info("Image variants : {} images queued at startup", queued);
+    }
+
+    // Queues the variants of an original; false when it is not queued - a later request or restart retries
+    public boolean submit(String image) {
+        if (unsupported.contains(image)) {
+            return false;
+        }
+        if (!pending.add(image)) {
+            return true;
+        }
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    generation.record(() -> generate(image));
+                } finally {
+                    pending.remove(image);
+                    latency.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(image);
+            rejected.increment();
+            log.warn("Image variant queue is full, skipping {}", image);
+            return false;
+        }
+    }
+
+    private void generate(String image) {
+        Path folder = Paths.get(path);
+        Path original = folder.resolve(image);
+        List<String> missing = missingVariants(folder, image);
+        if (missing.isEmpty() || !Files.isRegularFile(original)) {
+            return;
+        }
+        String format = format(image);
+        try {
+            long pixels = format == null ? -1 : pixels(original);
+            if (pixels > MAX_PIXELS) {
+                unsupported.add(image);
+                failures.increment();
+                log.warn("No variants for {} : {} pixels is over the {} limit", image, pixels, MAX_PIXELS);
+                return;
+            }
+            BufferedImage source = pixels < 0 ? null : ImageIO.read(original.toFile());
+            if (source == null) {
+                unsupported.add(image);
+                failures.increment();
+                log.warn("No variants for {} : format not readable or writable", image);
+                return;
+            }
+            for (String variant : missing) {
+                int maxSide = ImageVariants.SIZES.get(variant);
+                Path target = folder.resolve(ImageVariants.variantName(image, variant));
+                Path temp = Files.createTempFile(folder, target.getFileName().toString(), TEMP_SUFFIX);
+                try {
+                    // Already small enough - re-encoding would only lose quality and often grow the file
+                    if (Math.max(source.getWidth(), source.getHeight()) <= maxSide) {
+                        Files.copy(original, temp, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        write(resize(source, maxSide, format), format, temp);
+                    }
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            log.info("Image variants {} written for {}", missing, image);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.error("Failed to generate variants for {} : {}", image, e.getMessage());
+        }
+    }
+
+    // From the header only, -1 when no reader understands the file
+    private static long pixels(Path original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return -1;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static List<String> missingVariants(Path folder, String image) {
+        return ImageVariants.SIZES.keySet().stream()
+                .filter(variant -> !Files.exists(folder.resolve(ImageVariants.variantName(image, variant))))
+                .toList();
+    }
+
+    // Variants keep the original's format, so the name alone says what a URL serves
+    private static String format(String image) {
+        int dot = image.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String format = image.substring(dot + 1).toLowerCase(Locale.ROOT);
+        format = format.equals("jpg") ? "jpeg" : format;
+        return ImageIO.getImageWritersByFormatName(format).hasNext() ? format : null;
+    }
+
+    // Fits the longest side; halving steps keep large reductions sharp
+    private static BufferedImage resize(BufferedImage source, int maxSide, String format) {
+        boolean opaque = format.equals("jpeg") || format.equals("bmp");
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        double scale = (double) maxSide / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                if (opaque) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, width, height);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.equals("jpeg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
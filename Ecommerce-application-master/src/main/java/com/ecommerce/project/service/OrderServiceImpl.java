@@ -39,6 +39,15 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     @Autowired
     private CartService cartService;
 
@@ -211,6 +220,13 @@ public class OrderServiceImpl implements OrderService {
 
         // Save updated products in batch
         productRepository.saveAll(cartItems.stream().map(CartItem::getProduct).collect(Collectors.toList()));
+        for (CartItem cartItem : cartItems) {
+            Product product = cartItem.getProduct();
+            catalogCache.evictProduct(product.getProductId());
+            productFacetIndex.index(product);
+            catalogVersions.productChanged(product.getProductId(),
+                    product.getCategory() == null ? null : product.getCategory().getCategoryId());
+        }
 
 
         // once the order is placed the cat should get deleted automatically
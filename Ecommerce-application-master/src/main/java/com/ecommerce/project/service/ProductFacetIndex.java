@@ -0,0 +1,328 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory facet index: one compressed bitmap of product ids per category, seller, price bucket,
+// discount bucket and for in-stock. Filters and facet counts are bitmap intersections - the DB only
+// loads the requested page by id. Rebuilt from the DB at startup and kept current by the services.
+@Slf4j
+@Component
+public class ProductFacetIndex {
+
+    // Lower bounds of the price buckets (special price), the last one is open-ended
+    private static final double[] PRICE_BOUNDS = {0, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    // Discount buckets are 10 points wide: [0,10), [10,20) ... [90,100]
+    private static final int DISCOUNT_STEP = 10;
+    private static final int DISCOUNT_BUCKETS = 10;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<Long, RoaringBitmap> bySeller = new HashMap<>();
+    private final RoaringBitmap[] byPrice = newBitmaps(PRICE_BOUNDS.length);
+    private final RoaringBitmap[] byDiscount = newBitmaps(DISCOUNT_BUCKETS);
+
+    // What each product was indexed under - to clear its bits on update and refine partial buckets
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            clear();
+            Long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = productRepository.findFacetRowsAfter(afterId, PageRequest.ofSize(REBUILD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    afterId = (Long) row[0];
+                    add(Math.toIntExact(afterId), new Entry((Long) row[1], (Long) row[2],
+                            (Double) row[3], (Double) row[4], row[5] != null && (Integer) row[5] > 0));
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+            log.info("Product facet index rebuilt : {} products in {} ms", entries.size(), System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        index(List.of(product));
+    }
+
+    public void index(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                int id = Math.toIntExact(product.getProductId());
+                remove(id);
+                add(id, new Entry(
+                        product.getCategory() == null ? null : product.getCategory().getCategoryId(),
+                        product.getUser() == null ? null : product.getUser().getUserId(),
+                        product.getSpecialPrice(),
+                        product.getDiscount(),
+                        product.getQuantity() != null && product.getQuantity() > 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> productIds) {
+        lock.writeLock().lock();
+        try {
+            productIds.forEach(productId -> remove(Math.toIntExact(productId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Any argument may be null for "no filter". Each facet is counted with every filter except its own applied
+    public Result filter(Long categoryId, Double minPrice, Double maxPrice, Double minDiscount, Boolean inStockOnly,
+                         Long sellerId, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoryFilter = categoryId == null ? null : bitmapOrEmpty(byCategory, categoryId);
+            RoaringBitmap priceFilter = minPrice == null && maxPrice == null ? null
+                    : priceRange(minPrice == null ? 0 : minPrice, maxPrice == null ? Double.MAX_VALUE : maxPrice);
+            RoaringBitmap discountFilter = minDiscount == null ? null : discountAtLeast(minDiscount);
+            RoaringBitmap stockFilter = Boolean.TRUE.equals(inStockOnly) ? inStock : null;
+            RoaringBitmap sellerFilter = sellerId == null ? null : bitmapOrEmpty(bySeller, sellerId);
+
+            RoaringBitmap matches = and(categoryFilter, priceFilter, discountFilter, stockFilter, sellerFilter);
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put("category", countByKey(byCategory, and(priceFilter, discountFilter, stockFilter, sellerFilter)));
+            facets.put("price", countPrices(and(categoryFilter, discountFilter, stockFilter, sellerFilter)));
+            facets.put("discount", countDiscounts(and(categoryFilter, priceFilter, stockFilter, sellerFilter)));
+            facets.put("inStock", Map.of("true",
+                    RoaringBitmap.andCardinality(and(categoryFilter, priceFilter, discountFilter, sellerFilter), inStock)));
+            facets.put("seller", countByKey(bySeller, and(categoryFilter, priceFilter, discountFilter, stockFilter)));
+
+            return new Result(page(matches, offset, limit), matches.getLongCardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> page(RoaringBitmap matches, long offset, int limit) {
+        long cardinality = matches.getLongCardinality();
+        if (offset >= cardinality) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>((int) Math.min(limit, cardinality - offset));
+        // select() finds the offset-th id directly instead of walking up to it
+        PeekableIntIterator iterator = matches.getIntIterator();
+        iterator.advanceIfNeeded(matches.select((int) offset));
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+        return ids;
+    }
+
+    // Whole buckets inside the range are OR-ed in; the edge buckets are refined against the indexed price
+    private RoaringBitmap priceRange(double min, double max) {
+        RoaringBitmap range = new RoaringBitmap();
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            double low = PRICE_BOUNDS[i];
+            double high = i + 1 < PRICE_BOUNDS.length ? PRICE_BOUNDS[i + 1] : Double.POSITIVE_INFINITY;
+            if (high <= min || low > max) {
+                continue;
+            }
+            if (low >= min && high <= max) {
+                range.or(byPrice[i]);
+            } else {
+                byPrice[i].forEach((int id) -> {
+                    double price = entries.get(id).price();
+                    if (price >= min && price <= max) {
+                        range.add(id);
+                    }
+                });
+            }
+        }
+        return range;
+    }
+
+    private RoaringBitmap discountAtLeast(double minDiscount) {
+        RoaringBitmap range = new RoaringBitmap();
+        for (int i = 0; i < DISCOUNT_BUCKETS; i++) {
+            double low = i * DISCOUNT_STEP;
+            double high = i + 1 < DISCOUNT_BUCKETS ? low + DISCOUNT_STEP : Double.POSITIVE_INFINITY;
+            if (high <= minDiscount) {
+                continue;
+            }
+            if (low >= minDiscount) {
+                range.or(byDiscount[i]);
+            } else {
+                byDiscount[i].forEach((int id) -> {
+                    if (entries.get(id).discount() >= minDiscount) {
+                        range.add(id);
+                    }
+                });
+            }
+        }
+        return range;
+    }
+
+    private static Map<String, Integer> countByKey(Map<Long, RoaringBitmap> bitmaps, RoaringBitmap base) {
+        Map<String, Integer> counts = new TreeMap<>();
+        bitmaps.forEach((key, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0) {
+                counts.put(key.toString(), count);
+            }
+        });
+        return counts;
+    }
+
+    private Map<String, Integer> countPrices(RoaringBitmap base) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            String label = i + 1 < PRICE_BOUNDS.length
+                    ? format(PRICE_BOUNDS[i]) + "-" + format(PRICE_BOUNDS[i + 1])
+                    : format(PRICE_BOUNDS[i]) + "+";
+            counts.put(label, RoaringBitmap.andCardinality(base, byPrice[i]));
+        }
+        return counts;
+    }
+
+    // Cumulative: "20+" counts every product with at least 20% off
+    private Map<String, Integer> countDiscounts(RoaringBitmap base) {
+        int[] perBucket = new int[DISCOUNT_BUCKETS];
+        for (int i = 0; i < DISCOUNT_BUCKETS; i++) {
+            perBucket[i] = RoaringBitmap.andCardinality(base, byDiscount[i]);
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int atLeast = Arrays.stream(perBucket).sum();
+        for (int i = 1; i < DISCOUNT_BUCKETS; i++) {
+            atLeast -= perBucket[i - 1];
+            counts.put(i * DISCOUNT_STEP + "+", atLeast);
+        }
+        return counts;
+    }
+
+    // null filters are skipped; no filter at all means every product
+    private RoaringBitmap and(RoaringBitmap... filters) {
+        RoaringBitmap result = null;
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result = result == null ? filter.clone() : RoaringBitmap.and(result, filter);
+            }
+        }
+        return result == null ? all : result;
+    }
+
+    private void add(int id, Entry entry) {
+        entries.put(id, entry);
+        all.add(id);
+        if (entry.inStock()) {
+            inStock.add(id);
+        }
+        if (entry.categoryId() != null) {
+            byCategory.computeIfAbsent(entry.categoryId(), key -> new RoaringBitmap()).add(id);
+        }
+        if (entry.sellerId() != null) {
+            bySeller.computeIfAbsent(entry.sellerId(), key -> new RoaringBitmap()).add(id);
+        }
+        byPrice[priceBucket(entry.price())].add(id);
+        byDiscount[discountBucket(entry.discount())].add(id);
+    }
+
+    private void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        all.remove(id);
+        inStock.remove(id);
+        removeFrom(byCategory, entry.categoryId(), id);
+        removeFrom(bySeller, entry.sellerId(), id);
+        byPrice[priceBucket(entry.price())].remove(id);
+        byDiscount[discountBucket(entry.discount())].remove(id);
+    }
+
+    private static void removeFrom(Map<Long, RoaringBitmap> bitmaps, Long key, int id) {
+        if (key == null) {
+            return;
+        }
+        RoaringBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private void clear() {
+        entries.clear();
+        all.clear();
+        inStock.clear();
+        byCategory.clear();
+        bySeller.clear();
+        Arrays.stream(byPrice).forEach(RoaringBitmap::clear);
+        Arrays.stream(byDiscount).forEach(RoaringBitmap::clear);
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = Arrays.binarySearch(PRICE_BOUNDS, price);
+        // Not an exact bound -> insertion point - 1 is the bucket below it
+        return bucket >= 0 ? bucket : Math.max(0, -bucket - 2);
+    }
+
+    private static int discountBucket(double discount) {
+        return Math.min(DISCOUNT_BUCKETS - 1, Math.max(0, (int) (discount / DISCOUNT_STEP)));
+    }
+
+    private static RoaringBitmap bitmapOrEmpty(Map<Long, RoaringBitmap> bitmaps, Long key) {
+        return bitmaps.getOrDefault(key, new RoaringBitmap());
+    }
+
+    private static RoaringBitmap[] newBitmaps(int count) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new RoaringBitmap();
+        }
+        return bitmaps;
+    }
+
+    private static String format(double bound) {
+        return String.valueOf((long) bound);
+    }
+
+    private record Entry(Long categoryId, Long sellerId, double price, double discount, boolean inStock) {
+    }
+
+    // One page of ids in id order, the number of matches, and facet name -> value -> count
+    public record Result(List<Long> productIds, long totalElements, Map<String, Map<String, Integer>> facets) {
+    }
+}
@@ -0,0 +1,397 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.APIException;
+import com.ecommerce.project.exceptions.ResourceNotFoundException;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.payload.ProductImportError;
+import com.ecommerce.project.payload.ProductImportResponse;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.utils.AuthUtil;
+import com.ecommerce.project.utils.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+    // Plain JDBC - IDENTITY ids stop Hibernate from batching inserts
+    private static final String INSERT_PRODUCT = "INSERT INTO products "
+            + "(product_name, description, image, quantity, price, discount, special_price, category_id, seller_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_COLUMN_LENGTH = 255;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthUtil authUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private CatalogCountCache catalogCountCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Value("${spring.app.importBatchSize:1000}")
+    private int batchSize;
+
+    @Value("${spring.app.importMaxErrors:100}")
+    private int maxErrors;
+
+    @Override
+    public ProductImportResponse importProducts(Long categoryId, InputStream body, MediaType contentType) throws IOException {
+
+        long start = System.currentTimeMillis();
+        log.info("Importing products into category {} from {}", categoryId, contentType);
+        Category category = categoryRepository.findById(categoryId)
+                .orElseThrow(() -> {
+                    log.warn("Category not found with category Id ; {}", categoryId);
+                    return new ResourceNotFoundException("Category", "categoryId", categoryId);
+                });
+
+        Import run = new Import(category, userRepository.getReferenceById(authUtil.loggedInUserId()));
+        // Names already in the category, plus every name accepted so far - duplicates never reach the DB
+        run.names.addAll(productRepository.findProductNamesByCategoryId(categoryId));
+        run.response.setCategoryId(categoryId);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            readCsv(reader, run);
+        } else if (APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            readNdjson(reader, run);
+        } else {
+            throw new APIException("Unsupported import format " + contentType + ", use text/csv or application/x-ndjson");
+        }
+        flush(run);
+        // Once, after the last batch has committed - per batch it would keep rebuilding while the import runs
+        if (run.response.getImported() > 0) {
+            productSuggestIndex.productsChanged();
+        }
+
+        ProductImportResponse response = run.response;
+        response.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Import into category {} finished : {} rows, {} imported, {} duplicates, {} rejected in {} ms{}",
+                categoryId, response.getRowsRead(), response.getImported(), response.getDuplicates(),
+                response.getRejected(), response.getElapsedMs(), response.isAborted() ? ", aborted" : "");
+        return response;
+    }
+
+    // Header row names the columns: productName, description, quantity, price, discount - in any order
+    private void readCsv(BufferedReader reader, Import run) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = readRecord(csv, run);
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).replace("\uFEFF", "").strip().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : List.of("productname", "description", "quantity", "price")) {
+            if (!columns.containsKey(column)) {
+                throw new APIException("CSV header is missing the " + column + " column");
+            }
+        }
+
+        List<String> record;
+        while ((record = readRecord(csv, run)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            long line = csv.getRecordLine();
+            String productName = field(record, columns, "productname");
+            ProductDTO productDTO = new ProductDTO();
+            productDTO.setProductName(productName);
+            productDTO.setDescription(field(record, columns, "description"));
+            try {
+                productDTO.setQuantity(Integer.valueOf(field(record, columns, "quantity").strip()));
+                productDTO.setPrice(Double.parseDouble(field(record, columns, "price").strip()));
+                String discount = field(record, columns, "discount");
+                productDTO.setDiscount(discount.isBlank() ? 0 : Double.parseDouble(discount.strip()));
+            } catch (NumberFormatException e) {
+                run.response.setRowsRead(run.response.getRowsRead() + 1);
+                reject(run, line, productName, "Quantity, price and discount must be numbers");
+                continue;
+            }
+            accept(run, line, productDTO);
+        }
+    }
+
+    // A broken record (unclosed quote, over the cap) leaves no place to resume from - the rows before it are
+    // still imported, the record is reported and the import stops there
+    private List<String> readRecord(CsvReader csv, Import run) throws IOException {
+        try {
+            return csv.readRecord();
+        } catch (CsvReader.MalformedRecordException e) {
+            run.response.setRowsRead(run.response.getRowsRead() + 1);
+            reject(run, csv.getRecordLine(), null, e.getMessage());
+            run.response.setAborted(true);
+            return null;
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Import run) throws IOException {
+        long line = 0;
+        StringBuilder buffer = new StringBuilder();
+        while (readLine(reader, buffer)) {
+            line++;
+            if (buffer.length() > CsvReader.MAX_RECORD_CHARS) {
+                run.response.setRowsRead(run.response.getRowsRead() + 1);
+                reject(run, line, null, "Line exceeds " + CsvReader.MAX_RECORD_CHARS + " characters");
+                continue;
+            }
+            String json = buffer.toString();
+            if (json.isBlank()) {
+                continue;
+            }
+            ProductDTO productDTO;
+            try {
+                productDTO = objectMapper.readValue(json, ProductDTO.class);
+            } catch (JsonProcessingException e) {
+                run.response.setRowsRead(run.response.getRowsRead() + 1);
+                reject(run, line, null, "Malformed JSON : " + e.getOriginalMessage());
+                continue;
+            }
+            accept(run, line, productDTO);
+        }
+    }
+
+    // readLine with the CSV record cap - past it the line is skipped to its end, never buffered whole.
+    // An over-long line comes back longer than the cap; false at the end of the input.
+    private static boolean readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        boolean truncated = false;
+        while (c != -1 && c != '\n') {
+            if (line.length() <= CsvReader.MAX_RECORD_CHARS) {
+                line.append((char) c);
+            } else {
+                truncated = true;
+            }
+            c = reader.read();
+        }
+        if (!truncated && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return true;
+    }
+
+    private void accept(Import run, long line, ProductDTO productDTO) {
+        run.response.setRowsRead(run.response.getRowsRead() + 1);
+
+        Product product = new Product();
+        product.setProductName(productDTO.getProductName() == null ? null : productDTO.getProductName().strip());
+        product.setDescription(productDTO.getDescription());
+        product.setImage("default.png");
+        product.setQuantity(productDTO.getQuantity());
+        product.setPrice(productDTO.getPrice());
+        product.setDiscount(productDTO.getDiscount());
+        product.setCategory(run.category);
+        product.setUser(run.seller);
+
+        String error = validate(product);
+        if (error != null) {
+            reject(run, line, product.getProductName(), error);
+            return;
+        }
+        if (!run.names.add(product.getProductName())) {
+            run.response.setDuplicates(run.response.getDuplicates() + 1);
+            error(run, line, product.getProductName(), "Product already exist!!");
+            return;
+        }
+
+        product.setSpecialPrice(product.getPrice() - ((product.getDiscount() * 0.01) * product.getPrice()));
+        run.batch.add(product);
+        run.batchLines.add(line);
+        if (run.batch.size() >= batchSize) {
+            flush(run);
+        }
+    }
+
+    // Same rules as the entity, plus what the columns and the special price calculation need
+    private String validate(Product product) {
+        for (ConstraintViolation<Product> violation : validator.validate(product)) {
+            return violation.getPropertyPath() + " : " + violation.getMessage();
+        }
+        if (product.getProductName().length() > MAX_COLUMN_LENGTH || product.getDescription().length() > MAX_COLUMN_LENGTH) {
+            return "Product name and description must be at most " + MAX_COLUMN_LENGTH + " characters";
+        }
+        if (product.getQuantity() == null || product.getQuantity() < 0) {
+            return "Quantity must be zero or more";
+        }
+        if (!Double.isFinite(product.getPrice()) || product.getPrice() < 0) {
+            return "Price must be zero or more";
+        }
+        if (!Double.isFinite(product.getDiscount()) || product.getDiscount() < 0 || product.getDiscount() > 100) {
+            return "Discount must be between 0 and 100";
+        }
+        return null;
+    }
+
+    // One transaction per batch - a failed batch is reported and the import goes on with the next
+    private void flush(Import run) {
+        List<Product> batch = run.batch;
+        if (batch.isEmpty()) {
+            return;
+        }
+        Long categoryId = run.category.getCategoryId();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insert(batch);
+                catalogCountCache.adjust(CatalogCountCache.ALL_PRODUCTS, batch.size());
+                catalogCountCache.adjust(CatalogCountCache.category(categoryId), batch.size());
+                catalogCache.evictPages(CatalogCache.ALL_PRODUCTS, CatalogCache.KEYWORDS, CatalogCache.category(categoryId));
+                catalogVersions.productsAdded(categoryId);
+            });
+            productSearchIndex.index(batch);
+            productFacetIndex.index(batch);
+            run.response.setImported(run.response.getImported() + batch.size());
+            log.info("Imported {} of {} rows into category {}", run.response.getImported(),
+                    run.response.getRowsRead(), categoryId);
+        } catch (DataAccessException e) {
+            log.warn("Import batch of {} products into category {} failed : {}", batch.size(), categoryId, e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                run.names.remove(batch.get(i).getProductName());
+                reject(run, run.batchLines.get(i), batch.get(i).getProductName(), "Batch insert failed : "
+                        + e.getMostSpecificCause().getMessage());
+            }
+        }
+        run.batch = new ArrayList<>(batchSize);
+        run.batchLines = new ArrayList<>(batchSize);
+    }
+
+    private void insert(List<Product> batch) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_PRODUCT, new String[]{"product_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Product product = batch.get(i);
+                        ps.setString(1, product.getProductName());
+                        ps.setString(2, product.getDescription());
+                        ps.setString(3, product.getImage());
+                        ps.setInt(4, product.getQuantity());
+                        ps.setDouble(5, product.getPrice());
+                        ps.setDouble(6, product.getDiscount());
+                        ps.setDouble(7, product.getSpecialPrice());
+                        ps.setLong(8, product.getCategory().getCategoryId());
+                        ps.setLong(9, product.getUser().getUserId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }, keyHolder);
+
+        // Ids feed the search and facet indexes
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setProductId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    private void reject(Import run, long line, String productName, String message) {
+        run.response.setRejected(run.response.getRejected() + 1);
+        error(run, line, productName, message);
+    }
+
+    private void error(Import run, long line, String productName, String message) {
+        if (run.response.getErrors().size() < maxErrors) {
+            run.response.getErrors().add(new ProductImportError(line, productName, message));
+        } else {
+            run.response.setErrorsTruncated(true);
+        }
+    }
+
+    // Missing column or short record reads as empty
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= record.size() ? "" : record.get(index);
+    }
+
+    // State of one import - only the current batch of rows is held
+    private class Import {
+        private final Category category;
+        private final User seller;
+        private final Set<String> names = new HashSet<>();
+        private final ProductImportResponse response = new ProductImportResponse();
+        private List<Product> batch = new ArrayList<>(batchSize);
+        private List<Long> batchLines = new ArrayList<>(batchSize);
+
+        private Import(Category category, User seller) {
+            this.category = category;
+            this.seller = seller;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// In-memory Lucene index over product name and description, rebuilt from the DB at startup
+// and kept current by ProductServiceImpl. Returns product ids only - the rows still come from the DB.
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_PRODUCT_ID = "productId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_DESCRIPTION = "description";
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private ByteBuffersDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = new ByteBuffersDirectory();
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            writer.deleteAll();
+            long indexed = 0;
+            Long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = productRepository.findSearchRowsAfter(afterId, PageRequest.ofSize(REBUILD_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    afterId = (Long) row[0];
+                    writer.addDocument(toDocument(afterId, (String) row[1], (String) row[2]));
+                }
+                indexed += rows.size();
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            log.info("Product search index rebuilt : {} products in {} ms", indexed, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rebuild product search index", e);
+        }
+    }
+
+    public void index(Product product) {
+        index(List.of(product));
+    }
+
+    // One reopen for the whole batch - bulk imports would otherwise refresh per product
+    public void index(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        try {
+            for (Product product : products) {
+                writer.updateDocument(new Term(FIELD_ID, product.getProductId().toString()),
+                        toDocument(product.getProductId(), product.getProductName(), product.getDescription()));
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.error("Failed to index {} products : {}", products.size(), e.getMessage());
+        }
+    }
+
+    public void remove(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        try {
+            writer.deleteDocuments(productIds.stream().map(id -> new Term(FIELD_ID, id.toString())).toArray(Term[]::new));
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.error("Failed to remove products {} from search index : {}", productIds, e.getMessage());
+        }
+    }
+
+    // One page of ids in relevance order, plus the exact number of matches
+    public SearchHits search(String keyword, long offset, int limit) {
+        Query query = buildQuery(keyword);
+        if (query == null) {
+            return new SearchHits(List.of(), 0);
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                // The collector pre-sizes its queue - never ask for more hits than there are documents
+                int maxDoc = searcher.getIndexReader().maxDoc();
+                if (offset >= maxDoc) {
+                    return new SearchHits(List.of(), searcher.count(query));
+                }
+                int numHits = (int) Math.min(offset + limit, maxDoc);
+                TopDocs topDocs = searcher.search(query, new TopScoreDocCollectorManager(numHits, Integer.MAX_VALUE));
+                return new SearchHits(productIds(searcher, topDocs.scoreDocs, (int) offset), topDocs.totalHits.value);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product search failed", e);
+        }
+    }
+
+    private List<Long> productIds(IndexSearcher searcher, ScoreDoc[] scoreDocs, int offset) throws IOException {
+        StoredFields storedFields = searcher.storedFields();
+        List<Long> ids = new ArrayList<>(Math.max(0, scoreDocs.length - offset));
+        for (int i = offset; i < scoreDocs.length; i++) {
+            ids.add(storedFields.document(scoreDocs[i].doc).getField(FIELD_PRODUCT_ID).numericValue().longValue());
+        }
+        return ids;
+    }
+
+    // Every keyword term must match name or description - exactly, as a prefix, or within a few typos.
+    // Name matches outrank description matches, exact matches outrank fuzzy ones.
+    private Query buildQuery(String keyword) {
+        List<String> terms = analyze(keyword);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            BooleanQuery.Builder termQuery = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(FIELD_NAME, term)), 4f), BooleanClause.Occur.SHOULD)
+                    .add(new BoostQuery(new PrefixQuery(new Term(FIELD_NAME, term)), 2f), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(FIELD_DESCRIPTION, term)), BooleanClause.Occur.SHOULD);
+            int maxEdits = maxEdits(term);
+            if (maxEdits > 0) {
+                termQuery.add(new BoostQuery(new FuzzyQuery(new Term(FIELD_NAME, term), maxEdits, 1), 1.5f), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new FuzzyQuery(new Term(FIELD_DESCRIPTION, term), maxEdits, 1), 0.5f), BooleanClause.Occur.SHOULD);
+            }
+            query.add(termQuery.build(), BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    // Short words would match almost anything with a typo allowed
+    private static int maxEdits(String term) {
+        if (term.length() <= 2) {
+            return 0;
+        }
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(FIELD_NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static Document toDocument(Long productId, String name, String description) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_ID, productId.toString(), Field.Store.NO));
+        document.add(new StoredField(FIELD_PRODUCT_ID, productId));
+        document.add(new TextField(FIELD_NAME, name == null ? "" : name, Field.Store.NO));
+        document.add(new TextField(FIELD_DESCRIPTION, description == null ? "" : description, Field.Store.NO));
+        return document;
+    }
+
+    public record SearchHits(List<Long> productIds, long totalHits) {
+    }
+}
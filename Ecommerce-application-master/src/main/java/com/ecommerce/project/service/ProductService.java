@@ -1,23 +1,36 @@
 package com.ecommerce.project.service;
 
 import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.payload.ProductFilterResponse;
 import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.payload.ProductSuggestion;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface ProductService {
     ProductDTO addProduct(Long categoryId, ProductDTO product);
 
-    ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+    ProductDTO getProductById(Long productId);
 
-    ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+    ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals);
 
-    ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+    ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals);
+
+    ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, Boolean withTotals);
+
+    ProductFilterResponse filterProducts(Long categoryId, Double minPrice, Double maxPrice, Double minDiscount,
+                                         Boolean inStock, Long sellerId, Integer pageNumber, Integer pageSize);
+
+    List<ProductSuggestion> suggestProducts(String query, Integer limit);
 
     ProductDTO updateProduct(Long productId, ProductDTO product);
 
     ProductDTO deleteProduct(Long productId);
 
     ProductDTO updateProductImage(Long productId, MultipartFile image) throws IOException;
+
+    // fileName is already in the image store (a finished chunked upload)
+    ProductDTO updateProductImage(Long productId, String fileName);
 }
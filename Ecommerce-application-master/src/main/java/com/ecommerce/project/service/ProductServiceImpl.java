@@ -1,26 +1,42 @@
 package com.ecommerce.project.service;
 
+import com.ecommerce.project.config.AppConstants;
 import com.ecommerce.project.exceptions.APIException;
 import com.ecommerce.project.exceptions.ResourceNotFoundException;
 import com.ecommerce.project.model.Category;
 import com.ecommerce.project.model.Product;
 import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.payload.ProductFilterResponse;
 import com.ecommerce.project.payload.ProductResponse;
+import com.ecommerce.project.payload.ProductSuggestion;
 import com.ecommerce.project.repositories.CategoryRepository;
 import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.utils.AuthUtil;
+import com.ecommerce.project.utils.PageCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -39,9 +55,52 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CatalogCountCache catalogCountCache;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ImageBlobStore imageBlobStore;
+
+    @Value("${spring.app.suggestMaxResults:10}")
+    private int suggestMaxResults;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthUtil authUtil;
+
     @Value("${project.image}")
     private String path;
 
+    // Upper bound on matches re-sorted by the DB when a search is not ordered by relevance
+    @Value("${spring.app.searchMaxHits:10000}")
+    private int searchMaxHits;
+
+    @Value("${spring.app.maxPageSize:100}")
+    private int maxPageSize;
+
     @Override
     public ProductDTO addProduct(Long categoryId, ProductDTO productDTO) {
 
@@ -54,24 +113,26 @@ public class ProductServiceImpl implements ProductService {
                     return new ResourceNotFoundException("Category", "categoryId", categoryId);
                 });
 
-        boolean isProductNotPresent = true;
-
-        List<Product> products = category.getProducts();
-        for (Product value : products) {
-            if (value.getProductName().equals(productDTO.getProductName())) {
-                isProductNotPresent = false;
-                break;
-            }
-        }
+        // One indexed lookup instead of loading every product in the category
+        boolean isProductNotPresent = !productRepository.existsByCategoryAndProductName(category, productDTO.getProductName());
 
         if (isProductNotPresent) {
             Product product = modelMapper.map(productDTO, Product.class);
             product.setImage("default.png");
             product.setCategory(category);
+            // Seller - a reference is enough, the facet index only needs the id
+            product.setUser(userRepository.getReferenceById(authUtil.loggedInUserId()));
             double specialPrice = product.getPrice() -
                     ((product.getDiscount() * 0.01) * product.getPrice());
             product.setSpecialPrice(specialPrice);
             Product savedProduct = productRepository.save(product);
+            productSearchIndex.index(savedProduct);
+            productFacetIndex.index(savedProduct);
+            productSuggestIndex.productsChanged();
+            catalogCountCache.adjust(CatalogCountCache.ALL_PRODUCTS, 1);
+            catalogCountCache.adjust(CatalogCountCache.category(categoryId), 1);
+            catalogCache.evictPages(CatalogCache.ALL_PRODUCTS, CatalogCache.KEYWORDS, CatalogCache.category(categoryId));
+            catalogVersions.productChanged(savedProduct.getProductId(), categoryId);
 
             log.info("Product is saved successfully into Database : {}", savedProduct);
             return modelMapper.map(savedProduct, ProductDTO.class);
@@ -83,35 +144,54 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+    public ProductDTO getProductById(Long productId) {
+        return catalogCache.getProduct(productId, () -> {
+            log.info("Fetching product with product Id : {}", productId);
+            return productRepository.findProductDTOById(productId)
+                    .orElseThrow(() -> {
+                        log.warn("Product not found with product Id : {}", productId);
+                        return new ResourceNotFoundException("Product", "productId", productId);
+                    });
+        });
+    }
+
+    @Override
+    public ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals) {
+        checkPage(pageNumber, pageSize);
+        return cachedPage(CatalogCache.ALL_PRODUCTS, sortBy,
+                pageParams(pageNumber, pageSize, sortBy, sortOrder.toLowerCase(), cursor, withTotals),
+                () -> fetchAllProducts(pageNumber, pageSize, sortBy, sortOrder, cursor, withTotals));
+    }
+
+    private ProductResponse fetchAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals) {
 
         log.info("Fetching all the products from database");
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
+        if (cursor != null) {
+            Window<ProductDTO> window = productRepository.scrollProductDTOs(
+                    null, PageCursor.decode(cursor, sortByAndOrder, Product.class), sortByAndOrder, pageSize);
+            return toProductResponse(window, pageSize, sortByAndOrder, "Products not available into Database");
+        }
+
+        // Slice - fetches one extra row to know about the next page, never a COUNT
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findAll(pageDetails);
+        Slice<ProductDTO> pageProducts = productRepository.findProductDTOs(pageDetails);
 
-        List<Product> products = pageProducts.getContent();
-        if (products.isEmpty()) {
+        List<ProductDTO> productDTOS = pageProducts.getContent();
+        if (productDTOS.isEmpty()) {
             log.warn("Products are not available into database ");
 
             throw new APIException("Products not available into Database");
         }
 
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
-                .toList();
-
 
-        ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOS);
-        productResponse.setPageNumber(pageProducts.getNumber());
-        productResponse.setPageSize(pageProducts.getSize());
-        productResponse.setTotalElements(pageProducts.getTotalElements());
-        productResponse.setTotalPages(pageProducts.getTotalPages());
-        productResponse.setLastPage(pageProducts.isLast());
+        Long totalElements = withTotals
+                ? catalogCountCache.get(CatalogCountCache.ALL_PRODUCTS, productRepository::count)
+                : null;
+        ProductResponse productResponse = toProductResponse(pageProducts, totalElements);
 
 
         log.info("Total products retrieved : {}", productDTOS.size());
@@ -119,7 +199,14 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+    public ProductResponse searchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals) {
+        checkPage(pageNumber, pageSize);
+        return cachedPage(CatalogCache.category(categoryId), sortBy,
+                pageParams(pageNumber, pageSize, sortBy, sortOrder.toLowerCase(), cursor, withTotals),
+                () -> fetchByCategory(categoryId, pageNumber, pageSize, sortBy, sortOrder, cursor, withTotals));
+    }
+
+    private ProductResponse fetchByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, String cursor, Boolean withTotals) {
         log.info("Fetching products for this category : {}", categoryId);
 
         Category category = categoryRepository.findById(categoryId)
@@ -135,64 +222,204 @@ public class ProductServiceImpl implements ProductService {
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
+        if (cursor != null) {
+            // Same order as the offset query: price first, then the requested sort
+            Sort keysetSort = Sort.by("price").ascending().and(sortByAndOrder);
+            Window<ProductDTO> window = productRepository.scrollProductDTOs(
+                    categoryId, PageCursor.decode(cursor, keysetSort, Product.class), keysetSort, pageSize);
+            return toProductResponse(window, pageSize, keysetSort, category.getCategoryName() + " category does not have any products");
+        }
+
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findByCategoryOrderByPriceAsc(category, pageDetails);
+        Slice<ProductDTO> pageProducts = productRepository.findProductDTOsByCategoryId(categoryId, pageDetails);
 
-        List<Product> products = pageProducts.getContent();
+        List<ProductDTO> productDTOS = pageProducts.getContent();
 
-        if (products.isEmpty()) {
+        if (productDTOS.isEmpty()) {
             log.warn(category.getCategoryName() + " category does not have any products");
 
             throw new APIException(category.getCategoryName() + " category does not have any products");
         }
 
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
-                .toList();
-
 
-        ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOS);
-        productResponse.setPageNumber(pageProducts.getNumber());
-        productResponse.setPageSize(pageProducts.getSize());
-        productResponse.setTotalElements(pageProducts.getTotalElements());
-        productResponse.setTotalPages(pageProducts.getTotalPages());
-        productResponse.setLastPage(pageProducts.isLast());
+        Long totalElements = withTotals
+                ? catalogCountCache.get(CatalogCountCache.category(categoryId), () -> productRepository.countByCategory(category))
+                : null;
+        ProductResponse productResponse = toProductResponse(pageProducts, totalElements);
         log.info("Total products retrieved with Category Id : {}, products {} ", categoryId, productDTOS.size());
 
         return productResponse;
     }
 
     @Override
-    public ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+    public ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, Boolean withTotals) {
+        checkPage(pageNumber, pageSize);
+        return cachedPage(CatalogCache.KEYWORDS, sortBy,
+                pageParams(keyword, pageNumber, pageSize, sortBy, sortOrder.toLowerCase(), withTotals),
+                () -> fetchByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder, withTotals));
+    }
+
+    private ProductResponse fetchByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder, Boolean withTotals) {
 
         log.info("Fetching products for this Keyword : {}", keyword);
 
+        // Relevance order comes straight from the index - only the requested page is loaded
+        if (AppConstants.SORT_SEARCH_BY.equalsIgnoreCase(sortBy)) {
+            return searchByRelevance(keyword, pageNumber, pageSize, withTotals);
+        }
+
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
+        // Only the best searchMaxHits matches are re-sorted - a page reaching past them would come back short
+        if ((long) (pageNumber + 1) * pageSize > searchMaxHits) {
+            throw new APIException("Keyword results sorted by " + sortBy + " are limited to the first " + searchMaxHits
+                    + " matches, sort by " + AppConstants.SORT_SEARCH_BY + " to page further");
+        }
         Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findByProductNameLikeIgnoreCase('%' + keyword + '%', pageDetails);
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(keyword, 0, searchMaxHits);
+        Slice<ProductDTO> pageProducts = productRepository.findProductDTOsByIds(hits.productIds(), pageDetails);
+
+        List<ProductDTO> productDTOS = pageProducts.getContent();
+
+        if (productDTOS.isEmpty()) {
+
+            log.warn("Products not found with keyword: " + keyword);
+            throw new APIException("Products not found with keyword: " + keyword);
+        }
+
+        // The index counts every match, not just the ones re-sorted here
+        Long totalElements = withTotals ? hits.totalHits() : null;
+        ProductResponse productResponse = toProductResponse(pageProducts, totalElements);
+        log.info("Total products retrieved with Keyword : {}, products {} ", keyword, productDTOS.size());
+
+        return productResponse;
+    }
 
-        List<Product> products = pageProducts.getContent();
-        List<ProductDTO> productDTOS = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
+    @Override
+    public ProductFilterResponse filterProducts(Long categoryId, Double minPrice, Double maxPrice, Double minDiscount,
+                                                Boolean inStock, Long sellerId, Integer pageNumber, Integer pageSize) {
+
+        log.info("Filtering products : category {}, price {}-{}, discount {}+, in stock {}, seller {}",
+                categoryId, minPrice, maxPrice, minDiscount, inStock, sellerId);
+        checkPage(pageNumber, pageSize);
+
+        // Matches and facet counts come from the bitmaps, the DB only loads the page
+        ProductFacetIndex.Result result = productFacetIndex.filter(categoryId, minPrice, maxPrice, minDiscount,
+                inStock, sellerId, (long) pageNumber * pageSize, pageSize);
+        Map<Long, ProductDTO> productsById = result.productIds().isEmpty() ? Map.of()
+                : productRepository.findProductDTOsByIds(result.productIds()).stream()
+                .collect(Collectors.toMap(ProductDTO::getProductId, Function.identity()));
+        List<ProductDTO> productDTOS = result.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+
+        int totalPages = (int) ((result.totalElements() + pageSize - 1) / pageSize);
+        ProductFilterResponse productFilterResponse = new ProductFilterResponse();
+        productFilterResponse.setContent(productDTOS);
+        productFilterResponse.setPageNumber(pageNumber);
+        productFilterResponse.setPageSize(pageSize);
+        productFilterResponse.setTotalElements(result.totalElements());
+        productFilterResponse.setTotalPages(totalPages);
+        productFilterResponse.setLastPage((long) pageNumber + 1 >= totalPages);
+        productFilterResponse.setFacets(result.facets());
+
+        log.info("Total products matching the filter : {}, returned {}", result.totalElements(), productDTOS.size());
+        return productFilterResponse;
+    }
+
+    @Override
+    public List<ProductSuggestion> suggestProducts(String query, Integer limit) {
+        // Served from memory on every keystroke - no DB access, no logging per call
+        return productSuggestIndex.suggest(query, Math.min(limit, suggestMaxResults));
+    }
+
+    private ProductResponse cachedPage(String namespace, String sortBy, String params, Supplier<ProductResponse> loader) {
+        // Stock moves with every cart add - pages ordered by it are not worth caching, only coalesced
+        if ("quantity".equalsIgnoreCase(sortBy)) {
+            return singleFlight.execute(namespace + "|" + params, loader);
+        }
+        return catalogCache.getPage(namespace, params, loader);
+    }
+
+    // Cache and single-flight key - callers pass sortOrder lower-cased, it is compared ignoring case
+    private static String pageParams(Object... params) {
+        return Arrays.stream(params).map(String::valueOf).collect(Collectors.joining("|"));
+    }
+
+    // totalElements null -> count-free response, only lastPage is filled in
+    private ProductResponse toProductResponse(Slice<ProductDTO> slice, Long totalElements) {
+
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(slice.getContent());
+        productResponse.setPageNumber(slice.getNumber());
+        productResponse.setPageSize(slice.getSize());
+        productResponse.setLastPage(!slice.hasNext());
+        if (totalElements != null) {
+            productResponse.setTotalElements(totalElements);
+            productResponse.setTotalPages((int) ((totalElements + slice.getSize() - 1) / slice.getSize()));
+        }
+        return productResponse;
+    }
+
+    private ProductResponse toProductResponse(Window<ProductDTO> window, Integer pageSize, Sort sort, String emptyMessage) {
+
+        if (window.isEmpty()) {
+            log.warn(emptyMessage);
+            throw new APIException(emptyMessage);
+        }
+
+        List<ProductDTO> productDTOS = window.getContent();
+
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(productDTOS);
+        productResponse.setPageSize(pageSize);
+        productResponse.setLastPage(!window.hasNext());
+        if (window.hasNext()) {
+            productResponse.setNextCursor(PageCursor.encode(window.positionAt(window.size() - 1), sort));
+        }
+
+        log.info("Total products retrieved : {}", productDTOS.size());
+        return productResponse;
+    }
+
+    // Public endpoints - the page size sizes collectors, lists and cached pages, so it is capped
+    private void checkPage(Integer pageNumber, Integer pageSize) {
+        if (pageNumber < 0 || pageSize < 1 || pageSize > maxPageSize) {
+            throw new APIException("Page number must be 0 or more and page size between 1 and " + maxPageSize);
+        }
+    }
+
+    private ProductResponse searchByRelevance(String keyword, Integer pageNumber, Integer pageSize, Boolean withTotals) {
+
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(keyword, (long) pageNumber * pageSize, pageSize);
+
+        // IN (...) does not keep the order - put the rows back in ranking order
+        Map<Long, ProductDTO> productsById = productRepository.findProductDTOsByIds(hits.productIds()).stream()
+                .collect(Collectors.toMap(ProductDTO::getProductId, Function.identity()));
+        List<ProductDTO> productDTOS = hits.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
                 .toList();
 
-        if (products.isEmpty()) {
+        if (productDTOS.isEmpty()) {
 
             log.warn("Products not found with keyword: " + keyword);
             throw new APIException("Products not found with keyword: " + keyword);
         }
 
+        int totalPages = (int) ((hits.totalHits() + pageSize - 1) / pageSize);
         ProductResponse productResponse = new ProductResponse();
         productResponse.setContent(productDTOS);
-        productResponse.setPageNumber(pageProducts.getNumber());
-        productResponse.setPageSize(pageProducts.getSize());
-        productResponse.setTotalElements(pageProducts.getTotalElements());
-        productResponse.setTotalPages(pageProducts.getTotalPages());
-        productResponse.setLastPage(pageProducts.isLast());
+        productResponse.setPageNumber(pageNumber);
+        productResponse.setPageSize(pageSize);
+        if (withTotals) {
+            productResponse.setTotalElements(hits.totalHits());
+            productResponse.setTotalPages(totalPages);
+        }
+        productResponse.setLastPage(pageNumber + 1 >= totalPages);
         log.info("Total products retrieved with Keyword : {}, products {} ", keyword, productDTOS.size());
 
         return productResponse;
@@ -220,6 +447,10 @@ public class ProductServiceImpl implements ProductService {
         productFromDb.setSpecialPrice(product.getSpecialPrice());
 
         Product savedProduct = productRepository.save(productFromDb);
+        productSearchIndex.index(savedProduct);
+        productFacetIndex.index(savedProduct);
+        productSuggestIndex.productsChanged();
+        evictProductAndPages(savedProduct);
 
         log.info("Product updated successfully ");
 
@@ -227,7 +458,9 @@ public class ProductServiceImpl implements ProductService {
         return modelMapper.map(savedProduct, ProductDTO.class);
     }
 
+    // The image reference is released in the same transaction as the delete
     @Override
+    @Transactional
     public ProductDTO deleteProduct(Long productId) {
 
         log.info("Attempting to delete product with product Id : {}", productId);
@@ -241,12 +474,27 @@ public class ProductServiceImpl implements ProductService {
 
 
         productRepository.delete(product);
+        // A product still in an order or cart fails here, before anything outside the database changed
+        productRepository.flush();
+        imageBlobStore.release(product.getImage());
+        productSuggestIndex.productsChanged();
+        evictProductAndPages(product);
+        Long categoryId = categoryId(product);
+        afterCommit(() -> {
+            productSearchIndex.remove(List.of(productId));
+            productFacetIndex.remove(List.of(productId));
+            catalogCountCache.adjust(CatalogCountCache.ALL_PRODUCTS, -1);
+            if (categoryId != null) {
+                catalogCountCache.adjust(CatalogCountCache.category(categoryId), -1);
+            }
+        });
 
         log.info("Product deleted successfully  ");
         return modelMapper.map(product, ProductDTO.class);
     }
 
     @Override
+    @Transactional
     public ProductDTO updateProductImage(Long productId, MultipartFile image) throws IOException {
 
         log.info("Attempting to update product image with product Id : {}, and details : {}", productId, image.getName());
@@ -259,13 +507,72 @@ public class ProductServiceImpl implements ProductService {
                 });
 
         String fileName = fileService.uploadImage(path, image);
+        return replaceImage(productFromDb, fileName);
+    }
+
+    @Override
+    @Transactional
+    public ProductDTO updateProductImage(Long productId, String fileName) {
+
+        log.info("Attempting to set stored image {} on product Id : {}", fileName, productId);
+
+        Product productFromDb = productRepository.findById(productId)
+                .orElseThrow(() -> {
+
+                    log.info("Product not found with product Id : {}", productId);
+                    return new ResourceNotFoundException("Product", "productId", productId);
+                });
+
+        return replaceImage(productFromDb, fileName);
+    }
+
+    // Runs in the caller's transaction - the reference counts change with the product row or not at all
+    private ProductDTO replaceImage(Product productFromDb, String fileName) {
+        Long productId = productFromDb.getProductId();
+        String previousImage = productFromDb.getImage();
         productFromDb.setImage(fileName);
 
         Product updatedProduct = productRepository.save(productFromDb);
+        // Same content uploaded again nets out - the blob keeps its count
+        imageBlobStore.acquire(fileName);
+        imageBlobStore.release(previousImage);
+        afterCommit(() -> imageVariantService.submit(fileName));
+        catalogCache.evictProduct(productId);
+        catalogVersions.productChanged(productId, categoryId(updatedProduct));
 
         log.info("Product Image is updated successfully ");
         return modelMapper.map(updatedProduct, ProductDTO.class);
     }
 
+    // Name, price or stock may have changed - it can move between pages and searches
+    private void evictProductAndPages(Product product) {
+        catalogCache.evictProduct(product.getProductId());
+        catalogVersions.productChanged(product.getProductId(), categoryId(product));
+        if (product.getCategory() != null) {
+            catalogCache.evictPages(CatalogCache.ALL_PRODUCTS, CatalogCache.KEYWORDS,
+                    CatalogCache.category(product.getCategory().getCategoryId()));
+        } else {
+            catalogCache.evictPages(CatalogCache.ALL_PRODUCTS, CatalogCache.KEYWORDS);
+        }
+    }
+
+    // Indexes, counts and the variant queue are not transactional - touched only once the rows are committed
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Long categoryId(Product product) {
+        return product.getCategory() == null ? null : product.getCategory().getCategoryId();
+    }
+
 
 }
@@ -0,0 +1,261 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.payload.ProductSuggestion;
+import com.ecommerce.project.repositories.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Typeahead over product names. An immutable snapshot holds every word-start suffix of every name
+// in sorted order, so a prefix is one contiguous range found by binary search, and a min-tree over
+// the products' popularity rank pulls the best N out of that range without scanning it.
+// Writes only mark the snapshot stale - a new one is built off the request path and swapped in whole.
+@Slf4j
+@Component
+public class ProductSuggestIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private volatile Snapshot snapshot = Snapshot.build(List.of());
+
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Row> rows = new ArrayList<>();
+        Long afterId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = productRepository.findSuggestRowsAfter(afterId, PageRequest.ofSize(REBUILD_BATCH_SIZE));
+            for (Object[] row : batch) {
+                afterId = (Long) row[0];
+                if (row[1] != null) {
+                    rows.add(new Row(afterId, (String) row[1],
+                            row[2] == null ? 0 : (Integer) row[2], ((Number) row[3]).longValue()));
+                }
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        Snapshot built = Snapshot.build(rows);
+        snapshot = built;
+        log.info("Product suggest index rebuilt : {} products, {} entries in {} ms",
+                rows.size(), built.entryProduct.length, System.currentTimeMillis() - start);
+    }
+
+    // Debounce - every change in the window costs one rebuild
+    @Scheduled(fixedDelayString = "${spring.app.suggestRebuildDelayMs:2000}")
+    public void rebuildIfStale() {
+        // Cleared before reading, so a change committed during the rebuild triggers the next one
+        if (stale.getAndSet(false)) {
+            rebuild();
+        }
+    }
+
+    // Popularity and stock move with every order - picked up here instead of on each write
+    @Scheduled(fixedDelayString = "${spring.app.suggestRefreshMs:300000}",
+            initialDelayString = "${spring.app.suggestRefreshMs:300000}")
+    public void refresh() {
+        stale.set(true);
+    }
+
+    // Names added, renamed or removed. Marked again after commit - a rebuild in between reads the old rows
+    public void productsChanged() {
+        stale.set(true);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stale.set(true);
+                }
+            });
+        }
+    }
+
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        String prefix = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+        if (prefix.isEmpty() || prefix.length() > MAX_QUERY_LENGTH || limit < 1) {
+            return List.of();
+        }
+        return snapshot.suggest(prefix, limit);
+    }
+
+    private record Row(Long productId, String productName, int quantity, long unitsOrdered) {
+    }
+
+    private static final class Snapshot {
+
+        // Products by rank: most units ordered first, then most stock
+        private final long[] productIds;
+        private final String[] names;
+        private final String[] keys;
+
+        // Suffix entries in key order: entry -> (product rank, start offset in its key)
+        private final int[] entryProduct;
+        private final int[] entryOffset;
+
+        // Min-tree over entryProduct - tree[i] is the entry with the best rank below node i
+        private final int[] tree;
+
+        private Snapshot(long[] productIds, String[] names, String[] keys, int[] entryProduct, int[] entryOffset) {
+            this.productIds = productIds;
+            this.names = names;
+            this.keys = keys;
+            this.entryProduct = entryProduct;
+            this.entryOffset = entryOffset;
+            int size = entryProduct.length;
+            this.tree = new int[2 * size];
+            for (int i = 0; i < size; i++) {
+                tree[size + i] = i;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        private static Snapshot build(List<Row> rows) {
+            List<Row> ranked = new ArrayList<>(rows);
+            ranked.sort(Comparator.comparingLong(Row::unitsOrdered).reversed()
+                    .thenComparing(Comparator.comparingInt(Row::quantity).reversed())
+                    .thenComparing(Row::productId));
+
+            int count = ranked.size();
+            long[] productIds = new long[count];
+            String[] names = new String[count];
+            String[] keys = new String[count];
+            List<long[]> entries = new ArrayList<>();
+            for (int rank = 0; rank < count; rank++) {
+                Row row = ranked.get(rank);
+                productIds[rank] = row.productId();
+                names[rank] = row.productName();
+                keys[rank] = row.productName().toLowerCase(Locale.ROOT);
+                // "Apple iPhone 15" completes from "apple", "iphone" and "15"
+                String key = keys[rank];
+                for (int offset = 0; offset < key.length(); offset++) {
+                    if (Character.isLetterOrDigit(key.charAt(offset))
+                            && (offset == 0 || !Character.isLetterOrDigit(key.charAt(offset - 1)))) {
+                        entries.add(new long[]{rank, offset});
+                    }
+                }
+            }
+            entries.sort((a, b) -> compareSuffixes(keys[(int) a[0]], (int) a[1], keys[(int) b[0]], (int) b[1]));
+
+            int[] entryProduct = new int[entries.size()];
+            int[] entryOffset = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                entryProduct[i] = (int) entries.get(i)[0];
+                entryOffset[i] = (int) entries.get(i)[1];
+            }
+            return new Snapshot(productIds, names, keys, entryProduct, entryOffset);
+        }
+
+        private List<ProductSuggestion> suggest(String prefix, int limit) {
+            int from = firstEntry(prefix, false);
+            int to = firstEntry(prefix, true);
+            if (from >= to) {
+                return List.of();
+            }
+
+            // Best-first over sub-ranges: take the range's best entry, split the range around it
+            List<ProductSuggestion> suggestions = new ArrayList<>(limit);
+            Set<Integer> seen = new HashSet<>();
+            PriorityQueue<int[]> ranges = new PriorityQueue<>(Comparator.comparingInt(range -> entryProduct[range[2]]));
+            ranges.add(new int[]{from, to, best(from, to)});
+            while (!ranges.isEmpty() && suggestions.size() < limit) {
+                int[] range = ranges.poll();
+                int entry = range[2];
+                int rank = entryProduct[entry];
+                // A name matching at two words shows up twice
+                if (seen.add(rank)) {
+                    suggestions.add(new ProductSuggestion(productIds[rank], names[rank]));
+                }
+                if (range[0] < entry) {
+                    ranges.add(new int[]{range[0], entry, best(range[0], entry)});
+                }
+                if (entry + 1 < range[1]) {
+                    ranges.add(new int[]{entry + 1, range[1], best(entry + 1, range[1])});
+                }
+            }
+            return suggestions;
+        }
+
+        // First entry whose suffix is >= prefix, or (after) > every suffix starting with prefix
+        private int firstEntry(String prefix, boolean after) {
+            int low = 0;
+            int high = entryProduct.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparePrefix(keys[entryProduct[mid]], entryOffset[mid], prefix);
+                if (cmp < 0 || (after && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Entry in [from, to) with the best rank
+        private int best(int from, int to) {
+            int size = entryProduct.length;
+            int result = -1;
+            for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    result = result < 0 ? tree[l] : better(result, tree[l]);
+                    l++;
+                }
+                if ((r & 1) == 1) {
+                    r--;
+                    result = result < 0 ? tree[r] : better(result, tree[r]);
+                }
+            }
+            return result;
+        }
+
+        private int better(int a, int b) {
+            return entryProduct[a] <= entryProduct[b] ? a : b;
+        }
+
+        // Suffix truncated to the prefix length against the prefix - 0 means "starts with"
+        private static int comparePrefix(String key, int offset, String prefix) {
+            int length = Math.min(key.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                int cmp = Character.compare(key.charAt(offset + i), prefix.charAt(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return length < prefix.length() ? -1 : 0;
+        }
+
+        private static int compareSuffixes(String a, int aOffset, String b, int bOffset) {
+            int length = Math.min(a.length() - aOffset, b.length() - bOffset);
+            for (int i = 0; i < length; i++) {
+                int cmp = Character.compare(a.charAt(aOffset + i), b.charAt(bOffset + i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(a.length() - aOffset, b.length() - bOffset);
+        }
+    }
+}
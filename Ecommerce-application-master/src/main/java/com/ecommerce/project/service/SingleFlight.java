@@ -0,0 +1,93 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Collapses concurrent identical catalog queries: the first caller runs the query on its own thread,
+// callers with the same key arriving meanwhile wait for that result (or exception) instead of querying again.
+@Slf4j
+@Component
+public class SingleFlight {
+
+    @Value("${spring.app.singleFlightTimeoutMs:5000}")
+    private long timeoutMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private Counter leaders;
+    private Counter collapsed;
+    private Counter timeouts;
+
+    @PostConstruct
+    public void init() {
+        leaders = Counter.builder("catalog.singleflight.leaders")
+                .description("Catalog queries actually executed")
+                .register(meterRegistry);
+        collapsed = Counter.builder("catalog.singleflight.collapsed")
+                .description("Requests served by waiting on an identical in-flight query")
+                .register(meterRegistry);
+        timeouts = Counter.builder("catalog.singleflight.timeouts")
+                .description("Waiters that gave up on an in-flight query")
+                .register(meterRegistry);
+        Gauge.builder("catalog.singleflight.inflight", flights, Map::size)
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight == null) {
+            leaders.increment();
+            try {
+                T value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, flight);
+            }
+        }
+
+        collapsed.increment();
+        try {
+            return (T) inFlight.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Gave up waiting {} ms for in-flight query {}", timeoutMs, key);
+            throw new ServiceBusyException("Catalog is busy, please retry shortly", 1);
+        } catch (ExecutionException e) {
+            // Same outcome as the caller that ran the query - e.g. APIException for an empty page
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for the catalog", 1);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ecommerce.project.utils;
 
 import com.ecommerce.project.model.User;
 import com.ecommerce.project.repositories.UserRepository;
+import com.ecommerce.project.security.services.UserDetailsImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -15,39 +16,55 @@ public class AuthUtil {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    RequestIdentity requestIdentity;
+
     // LoggedInUser
     public User loggedInUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findUserByUserName(authentication.getName())
-                .orElseThrow(() -> {
-                    log.warn("User not found with username :" + authentication.getName());
-                    return new UsernameNotFoundException("User not found with username :" + authentication.getName());
-                });
+        RequestIdentity identity = identity();
+        if (identity.getUser() == null) {
+            identity.setUser(findUser(identity.getUsername()));
+        }
+        return identity.getUser();
     }
 
 
     // LoggedInUserId
 
     public Long loggedInUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findUserByUserName(authentication.getName())
-                .orElseThrow(() -> {
-                    log.warn("User not found with username :" + authentication.getName());
-                    return new UsernameNotFoundException("User not found with username :" + authentication.getName());
-                });
-
-
-        return user.getUserId();
+        return identity().getUserId();
     }
 
     // LoggedInEmail
     public String loggedInEmail() {
+        return identity().getEmail();
+    }
+
+    // Filled once per request - from the principal when possible, otherwise from one DB lookup
+    private RequestIdentity identity() {
+        if (requestIdentity.isResolved()) {
+            return requestIdentity;
+        }
+
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findUserByUserName(authentication.getName())
+        if (authentication.getPrincipal() instanceof UserDetailsImpl userDetails
+                && userDetails.getId() != null && userDetails.getEmail() != null) {
+
+            requestIdentity.resolve(userDetails.getId(), userDetails.getUsername(), userDetails.getEmail());
+        } else {
+
+            User user = findUser(authentication.getName());
+            requestIdentity.resolve(user.getUserId(), user.getUserName(), user.getEmail());
+            requestIdentity.setUser(user);
+        }
+        return requestIdentity;
+    }
+
+    private User findUser(String username) {
+        return userRepository.findUserByUserName(username)
                 .orElseThrow(() -> {
-                    log.warn("User not found with username :" + authentication.getName());
-                    return new UsernameNotFoundException("User not found with username :" + authentication.getName());
+                    log.warn("User not found with username :" + username);
+                    return new UsernameNotFoundException("User not found with username :" + username);
                 });
-        return user.getEmail();
     }
 }
@@ -0,0 +1,102 @@
+package com.ecommerce.project.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming RFC 4180 reader: quoted fields may hold commas, doubled quotes and line breaks.
+// Only the current record is held in memory, and a record is capped so an unclosed quote cannot swallow the file.
+public final class CsvReader {
+
+    public static final int MAX_RECORD_CHARS = 65536;
+
+    private final Reader reader;
+    private long line = 1;
+    private long recordLine;
+    private int pending = -2;
+
+    // Wrap in a BufferedReader - records are read a character at a time
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Line the last record started on, for error reports
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    // Next record's fields, or null at the end of the input
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int length = 0;
+        boolean quoted = false;
+        while (true) {
+            if (++length > MAX_RECORD_CHARS) {
+                throw new MalformedRecordException("Record at line " + recordLine + " exceeds " + MAX_RECORD_CHARS + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedRecordException("Unclosed quote in record at line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pending = next;
+                    }
+                }
+                if (c != -1) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    // The input cannot be read past this record - unlike an I/O failure, the caller may report it and stop
+    public static final class MalformedRecordException extends IOException {
+        public MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
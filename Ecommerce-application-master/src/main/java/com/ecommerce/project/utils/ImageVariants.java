@@ -0,0 +1,58 @@
+package com.ecommerce.project.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Names and URLs of the resized copies kept next to each product image: "<name>-thumb.<ext>" and so on,
+// in the original's format. URLs are valid before the copy exists - the image endpoint serves the original meanwhile.
+public final class ImageVariants {
+
+    public static final String URL_PREFIX = "/api/public/images/";
+    public static final String ORIGINAL = "original";
+
+    // Variant -> longest side in pixels
+    public static final Map<String, Integer> SIZES;
+
+    static {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put("thumb", 150);
+        sizes.put("card", 400);
+        sizes.put("detail", 1000);
+        SIZES = Collections.unmodifiableMap(sizes);
+    }
+
+    private static final Pattern VARIANT_NAME = Pattern.compile("(.+)-(thumb|card|detail)(\\.[A-Za-z0-9]+)");
+
+    private ImageVariants() {
+    }
+
+    public static String variantName(String image, String variant) {
+        int dot = image.lastIndexOf('.');
+        return dot < 0 ? image + "-" + variant : image.substring(0, dot) + "-" + variant + image.substring(dot);
+    }
+
+    // Original a variant was made from, or null for a name that is not a variant
+    public static String originalName(String fileName) {
+        Matcher matcher = VARIANT_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) + matcher.group(3) : null;
+    }
+
+    public static boolean isVariant(String fileName) {
+        return VARIANT_NAME.matcher(fileName).matches();
+    }
+
+    public static Map<String, String> urls(String image) {
+        if (image == null || image.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String variant : SIZES.keySet()) {
+            urls.put(variant, URL_PREFIX + variantName(image, variant));
+        }
+        urls.put(ORIGINAL, URL_PREFIX + image);
+        return urls;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecommerce.project.utils;
+
+import com.ecommerce.project.exceptions.APIException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Opaque keyset cursor: base64url(JSON) of the last row's sort key and id, tied to the sort it was issued for
+public final class PageCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+
+    private PageCursor() {
+    }
+
+    public static String encode(ScrollPosition position, Sort sort) {
+        KeysetScrollPosition keyset = (KeysetScrollPosition) position;
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new Payload(sort.toString(), keyset.getKeys()));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    // Empty cursor = first page. Values are converted back to the entity's property types.
+    // The cursor comes from the client: anything but exactly the sort keys plus the id, all set, is a 400.
+    public static KeysetScrollPosition decode(String cursor, Sort sort, Class<?> entityClass) {
+        Set<String> expected = new HashSet<>();
+        for (Sort.Order order : sort) {
+            expected.add(order.getProperty());
+            checkSortable(entityClass, order.getProperty());
+        }
+        expected.add(idProperty(entityClass));
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        Payload payload;
+        try {
+            payload = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), new TypeReference<>() {
+            });
+        } catch (IOException | IllegalArgumentException e) {
+            throw new APIException("Invalid cursor");
+        }
+        if (!sort.toString().equals(payload.sort()) || payload.keys() == null) {
+            throw new APIException("Cursor does not match the requested sort");
+        }
+        if (!payload.keys().keySet().equals(expected)) {
+            throw new APIException("Invalid cursor");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> key : payload.keys().entrySet()) {
+            Field field = ReflectionUtils.findField(entityClass, key.getKey());
+            Object value;
+            try {
+                value = key.getValue() == null ? null : CONVERSION.convert(key.getValue(), field.getType());
+            } catch (ConversionException e) {
+                throw new APIException("Invalid cursor");
+            }
+            if (value == null) {
+                throw new APIException("Invalid cursor");
+            }
+            keys.put(key.getKey(), value);
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    // Keyset paging compares the sort keys with < and > - a null key has no place in that order, and a
+    // relation (category) is not a value at all
+    private static void checkSortable(Class<?> entityClass, String property) {
+        Field field = ReflectionUtils.findField(entityClass, property);
+        if (field == null || !Comparable.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(field.getType()))) {
+            throw new APIException("Cannot page by cursor sorted by " + property);
+        }
+        Column column = field.getAnnotation(Column.class);
+        boolean notNull = field.getType().isPrimitive() || field.isAnnotationPresent(Id.class)
+                || field.isAnnotationPresent(NotNull.class) || field.isAnnotationPresent(NotBlank.class)
+                || (column != null && !column.nullable());
+        if (!notNull) {
+            throw new APIException("Cannot page by cursor sorted by " + property + ", it may be empty - use page numbers");
+        }
+    }
+
+    private static String idProperty(Class<?> entityClass) {
+        for (Class<?> type = entityClass; type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    return field.getName();
+                }
+            }
+        }
+        throw new IllegalArgumentException(entityClass.getName() + " has no @Id field");
+    }
+
+    private record Payload(String sort, Map<String, Object> keys) {
+    }
+}
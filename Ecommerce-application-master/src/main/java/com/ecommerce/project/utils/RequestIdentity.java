@@ -0,0 +1,30 @@
+package com.ecommerce.project.utils;
+
+import com.ecommerce.project.model.User;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// Logged in user's identity, resolved once per request from the security principal
+@Getter
+@Component
+@RequestScope
+public class RequestIdentity {
+
+    private boolean resolved;
+    private Long userId;
+    private String username;
+    private String email;
+
+    // Loaded only when a caller needs the entity itself
+    @Setter
+    private User user;
+
+    public void resolve(Long userId, String username, String email) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.resolved = true;
+    }
+}
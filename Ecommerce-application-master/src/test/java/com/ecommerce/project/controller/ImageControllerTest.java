@@ -0,0 +1,132 @@
+package com.ecommerce.project.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /api/public/images/{fileName}: whole files and ranges from the hot image cache and from disk, and revalidation
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImageControllerTest {
+
+    // Spans several cache pages, so ranges cross page boundaries
+    private static final int SMALL_IMAGE_BYTES = 40_000;
+    // Over spring.app.hotImageMaxFileBytes - always read from disk
+    private static final int LARGE_IMAGE_BYTES = 300_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${project.image}")
+    private String path;
+
+    private String smallName;
+    private byte[] small;
+    private String largeName;
+    private byte[] large;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Random random = new Random(42);
+        small = new byte[SMALL_IMAGE_BYTES];
+        random.nextBytes(small);
+        large = new byte[LARGE_IMAGE_BYTES];
+        random.nextBytes(large);
+
+        Path folder = Files.createDirectories(Path.of(path));
+        smallName = UUID.randomUUID() + ".png";
+        largeName = UUID.randomUUID() + ".png";
+        Files.write(folder.resolve(smallName), small);
+        Files.write(folder.resolve(largeName), large);
+    }
+
+    @Test
+    void smallImageIsServedFromTheHotCacheOnceLoaded() throws Exception {
+        double hitsBefore = cacheGets("hit");
+
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mockMvc.perform(get("/api/public/images/" + smallName))
+                    .andExpect(status().isOk())
+                    .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, SMALL_IMAGE_BYTES))
+                    .andReturn();
+            assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(small);
+        }
+
+        // The first request loads it, the other two are hits
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(2);
+        assertThat(meterRegistry.get("images.hot.resident.bytes").gauge().value()).isGreaterThanOrEqualTo(SMALL_IMAGE_BYTES);
+    }
+
+    @Test
+    void rangeOfACachedImageCrossesPageBoundaries() throws Exception {
+        mockMvc.perform(get("/api/public/images/" + smallName)).andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/api/public/images/" + smallName)
+                        .header(HttpHeaders.RANGE, "bytes=16000-33000"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 16000-33000/" + SMALL_IMAGE_BYTES))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(small, 16000, 33001));
+    }
+
+    @Test
+    void rangeOfALargeImageIsReadFromDisk() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/public/images/" + largeName)
+                        .header(HttpHeaders.RANGE, "bytes=-1000"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + (LARGE_IMAGE_BYTES - 1000) + "-" + (LARGE_IMAGE_BYTES - 1) + "/" + LARGE_IMAGE_BYTES))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray())
+                .isEqualTo(Arrays.copyOfRange(large, LARGE_IMAGE_BYTES - 1000, LARGE_IMAGE_BYTES));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/api/public/images/" + smallName)
+                        .header(HttpHeaders.RANGE, "bytes=" + SMALL_IMAGE_BYTES + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + SMALL_IMAGE_BYTES));
+    }
+
+    @Test
+    void matchingETagIsNotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/api/public/images/" + smallName))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult result = mockMvc.perform(get("/api/public/images/" + smallName)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "hotImages").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecommerce.project.controller;
+
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// GET /api/public/categories/{categoryId}/products?cursor=: following nextCursor visits every product once,
+// in order across equal prices, and a cursor the client changed is a 400
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductCursorPagingTest {
+
+    // Pages of three, the last one short - with prices repeating across page boundaries
+    private static final double[] PRICES = {30, 10, 20, 10, 20, 10, 30, 20};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long categoryId;
+    private final List<Long> expectedOrder = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category(null, "Category " + UUID.randomUUID(), null));
+        categoryId = category.getCategoryId();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRICES.length; i++) {
+            Product product = new Product();
+            product.setProductName("Cursor product " + i);
+            product.setDescription("Cursor paging product");
+            product.setQuantity(10);
+            product.setPrice(PRICES[i]);
+            product.setSpecialPrice(PRICES[i]);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+        // Price, then id
+        products.stream()
+                .sorted((a, b) -> a.getPrice() != b.getPrice()
+                        ? Double.compare(a.getPrice(), b.getPrice())
+                        : a.getProductId().compareTo(b.getProductId()))
+                .forEach(product -> expectedOrder.add(product.getProductId()));
+    }
+
+    @Test
+    void nextCursorVisitsEveryProductOnceInOrder() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            JsonNode page = page(cursor);
+            page.get("content").forEach(product -> seen.add(product.get("productId").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        }
+
+        assertThat(seen).isEqualTo(expectedOrder);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void changedCursorIsABadRequest() throws Exception {
+        String cursor = page("").get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/public/categories/{categoryId}/products", categoryId)
+                        .param("pageSize", "3")
+                        .param("sortBy", "productId")
+                        .param("cursor", cursor.substring(0, cursor.length() - 4) + "AAAA"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+        // Issued for ascending ids, replayed against descending ones
+        mockMvc.perform(get("/api/public/categories/{categoryId}/products", categoryId)
+                        .param("pageSize", "3")
+                        .param("sortBy", "productId")
+                        .param("sortOrder", "desc")
+                        .param("cursor", cursor))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor does not match the requested sort"));
+    }
+
+    private JsonNode page(String cursor) throws Exception {
+        String body = mockMvc.perform(get("/api/public/categories/{categoryId}/products", categoryId)
+                        .param("pageSize", "3")
+                        .param("sortBy", "productId")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
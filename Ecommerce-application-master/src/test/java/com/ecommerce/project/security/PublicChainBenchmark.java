@@ -0,0 +1,114 @@
+package com.ecommerce.project.security;
+
+import com.ecommerce.project.SbEcomApplication;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// Load test for GET /api/public/products (ProductController.getAllProducts) over real HTTP:
+// one chain for everything vs. the separate public chain, anonymous and with a signed in user's cookie.
+// Run with: mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//           java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.ecommerce.project.security.PublicChainBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class PublicChainBenchmark {
+
+    @Param({"false", "true"})
+    public boolean publicChainEnabled;
+
+    @Param({"false", "true"})
+    public boolean withCookie;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        // Command line args - they win over application.properties
+        context = new SpringApplicationBuilder(SbEcomApplication.class)
+                .run("--server.port=0",
+                        "--spring.app.publicChainEnabled=" + publicChainEnabled,
+                        "--spring.app.rateLimit.enabled=false",
+                        "--logging.level.com.ecommerce.project=WARN",
+                        "--logging.level.org.hibernate=WARN");
+        seedProducts();
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/public/products?pageSize=10")).GET();
+        if (withCookie) {
+            builder.header("Cookie", signIn(baseUrl));
+        }
+        request = builder.build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getAllProducts() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    private void seedProducts() {
+        Category category = context.getBean(CategoryRepository.class).save(new Category(null, "Benchmark", null));
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setProductName("Benchmark product " + i);
+            product.setDescription("Benchmark product description " + i);
+            product.setQuantity(100);
+            product.setPrice(100 + i);
+            product.setSpecialPrice(100 + i);
+            product.setCategory(category);
+            productRepository.save(product);
+        }
+    }
+
+    // Signed in users send the access cookie to /api/public as well - it is scoped to /api
+    private String signIn(String baseUrl) throws IOException, InterruptedException {
+        HttpRequest signIn = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/signin"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"johndoe\",\"password\":\"john@1234\"}"))
+                .build();
+        HttpResponse<String> response = httpClient.send(signIn, HttpResponse.BodyHandlers.ofString());
+        String setCookie = response.headers().firstValue("Set-Cookie")
+                .orElseThrow(() -> new IllegalStateException("Sign in failed: " + response.statusCode()));
+        return setCookie.substring(0, setCookie.indexOf(';'));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PublicChainBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
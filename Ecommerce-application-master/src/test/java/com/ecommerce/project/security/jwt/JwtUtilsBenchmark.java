@@ -0,0 +1,74 @@
+package com.ecommerce.project.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+// Per-request cost of turning the JWT cookie into a username.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ecommerce.project.security.jwt.JwtUtilsBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "mySecretKeyrqtdbfoweyskghflepsgskrfbfyteksgelfhstegldfhdkhgfdtyk";
+
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache verifiedTokenCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 30000000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtCookieName", "Spring_Ecom_cookie");
+        ReflectionTestUtils.setField(jwtUtils, "jwtCacheSize", 10000);
+        jwtUtils.init();
+        verifiedTokenCache = (VerifiedTokenCache) ReflectionTestUtils.getField(jwtUtils, "verifiedTokenCache");
+        token = jwtUtils.generateTokenFromUsername("johndoe");
+    }
+
+    // Before: validateJwtToken + getUsernameFromJwtToken, each decoding the key and building a parser
+    @Benchmark
+    public String parseTwiceRebuildingKey() {
+        Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    // Cache miss: one parse with the prebuilt key and parser
+    @Benchmark
+    public String parseOnceWithPrebuiltParser() {
+        verifiedTokenCache.remove(token);
+        return jwtUtils.getVerifiedClaims(token).getSubject();
+    }
+
+    // After: repeat request from the same browser
+    @Benchmark
+    public String cachedVerifiedToken() {
+        return jwtUtils.getVerifiedClaims(token).getSubject();
+    }
+
+    private static SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtUtilsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.project.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Verified claims are served until the token's exp, only for the exact token, and never after sign out
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+    @Test
+    void verifiedTokenIsServedUntilItExpires() throws Exception {
+        // exp has whole seconds - this one is 0.5 to 1.5 s away
+        Claims claims = claims(System.currentTimeMillis() + 1500);
+        cache.put("header.payload.signature", claims);
+
+        assertThat(cache.get("header.payload.signature")).isSameAs(claims);
+        Thread.sleep(1600);
+        assertThat(cache.get("header.payload.signature")).isNull();
+    }
+
+    @Test
+    void expiredTokenIsNotCached() {
+        cache.put("header.payload.signature", claims(System.currentTimeMillis() - 1000));
+
+        assertThat(cache.get("header.payload.signature")).isNull();
+    }
+
+    @Test
+    void sameSignatureWithAnotherPayloadIsAMiss() {
+        cache.put("header.payload.signature", claims(System.currentTimeMillis() + 60_000));
+
+        assertThat(cache.get("header.forged.signature")).isNull();
+    }
+
+    @Test
+    void removedTokenIsAMiss() {
+        cache.put("header.payload.signature", claims(System.currentTimeMillis() + 60_000));
+        cache.remove("header.payload.signature");
+
+        assertThat(cache.get("header.payload.signature")).isNull();
+    }
+
+    private static Claims claims(long expiresAt) {
+        return Jwts.claims().subject("johndoe").expiration(new Date(expiresAt)).build();
+    }
+}
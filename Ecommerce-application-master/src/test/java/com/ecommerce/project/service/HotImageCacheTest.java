@@ -0,0 +1,113 @@
+package com.ecommerce.project.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The slab: the budget holds however many images are loaded, and an evicted image's pages are reused
+// only once no response is still writing from them
+class HotImageCacheTest {
+
+    private static final int PAGE = 16 * 1024;
+
+    @TempDir
+    private Path folder;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HotImageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new HotImageCache();
+        // Four pages kept, plus room for one more file of up to two pages while it loads
+        ReflectionTestUtils.setField(cache, "budgetBytes", 6L * PAGE);
+        ReflectionTestUtils.setField(cache, "maxFileBytes", 2L * PAGE);
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+    }
+
+    @Test
+    void residentBytesStayWithinTheBudget() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            byte[] image = image(i, 2 * PAGE - 100);
+            try (HotImageCache.Lease lease = get("image" + i + ".png", image)) {
+                if (lease != null) {
+                    assertThat(read(lease, 0, image.length)).isEqualTo(image);
+                }
+            }
+            assertThat(residentBytes()).isLessThanOrEqualTo(6.0 * PAGE);
+        }
+    }
+
+    @Test
+    void leasedImageKeepsItsBytesWhenReplaced() throws Exception {
+        byte[] first = image(1, PAGE + 500);
+        Path file = folder.resolve("replaced.png");
+        Files.write(file, first);
+        HotImageCache.Lease lease = cache.get("replaced.png", file, first.length, Files.getLastModifiedTime(file).toMillis());
+        assertThat(lease).isNotNull();
+
+        // A new version under the same name evicts the old entry - and loads into other pages
+        byte[] second = image(2, PAGE + 500);
+        Files.write(file, second);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        try (HotImageCache.Lease replacement = cache.get("replaced.png", file, second.length,
+                Files.getLastModifiedTime(file).toMillis())) {
+            assertThat(read(replacement, 0, second.length)).isEqualTo(second);
+        }
+
+        assertThat(read(lease, 0, first.length)).isEqualTo(first);
+        assertThat(residentBytes()).isEqualTo(4.0 * PAGE);
+        lease.close();
+        assertThat(residentBytes()).isEqualTo(2.0 * PAGE);
+    }
+
+    @Test
+    void rangeIsWrittenAcrossPages() throws Exception {
+        byte[] image = image(3, 2 * PAGE);
+        try (HotImageCache.Lease lease = get("range.png", image)) {
+            assertThat(read(lease, PAGE - 10, PAGE + 10)).isEqualTo(Arrays.copyOfRange(image, PAGE - 10, PAGE + 10));
+        }
+    }
+
+    @Test
+    void largerFilesAreNotCached() throws Exception {
+        assertThat(get("large.png", image(4, 2 * PAGE + 1))).isNull();
+        assertThat(residentBytes()).isZero();
+    }
+
+    private HotImageCache.Lease get(String fileName, byte[] content) throws Exception {
+        Path file = folder.resolve(fileName);
+        Files.write(file, content);
+        return cache.get(fileName, file, content.length, Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private static byte[] read(HotImageCache.Lease lease, long start, long end) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lease.writeTo(Channels.newChannel(out), start, end);
+        return out.toByteArray();
+    }
+
+    private static byte[] image(int seed, int size) {
+        byte[] image = new byte[size];
+        new Random(seed).nextBytes(image);
+        return image;
+    }
+
+    private double residentBytes() {
+        return meterRegistry.get("images.hot.resident.bytes").gauge().value();
+    }
+}
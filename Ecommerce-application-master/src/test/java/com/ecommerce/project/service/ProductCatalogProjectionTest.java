@@ -0,0 +1,135 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.SqlStatementCounter;
+import com.ecommerce.project.model.Cart;
+import com.ecommerce.project.model.CartItem;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.repositories.CartItemRepository;
+import com.ecommerce.project.repositories.CartRepository;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Catalog page over products that sit in many active carts: the ProductDTO projection against
+// loading Product entities (EAGER cart items -> carts) and mapping them with ModelMapper
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductCatalogProjectionTest {
+
+    private static final int PRODUCTS = 20;
+    private static final int CARTS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ModelMapper modelMapper;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category(null, "Category " + UUID.randomUUID(), null));
+        categoryId = category.getCategoryId();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setProductName("Projection product " + i);
+            product.setDescription("Projection product description");
+            product.setQuantity(100);
+            product.setPrice(100 + i);
+            product.setSpecialPrice(100 + i);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+
+        // Every product is in every cart
+        List<CartItem> cartItems = new ArrayList<>();
+        for (int i = 0; i < CARTS; i++) {
+            Cart cart = new Cart();
+            cart.setTotalPrice(0.0);
+            cart = cartRepository.save(cart);
+            for (Product product : products) {
+                cartItems.add(new CartItem(null, cart, product, 1, 0.0, product.getSpecialPrice()));
+            }
+        }
+        cartItemRepository.saveAll(cartItems);
+    }
+
+    @Test
+    void categoryPageIsTwoStatementsWithoutCarts() throws Exception {
+        SqlStatementCounter.reset();
+        mockMvc.perform(get("/api/public/categories/{categoryId}/products", categoryId)
+                        .param("pageSize", String.valueOf(PRODUCTS))
+                        .param("withTotals", "false"))
+                .andExpect(status().isOk());
+
+        // Category lookup for the 404 check, then the page itself
+        assertThat(SqlStatementCounter.statements()).hasSize(2);
+        assertThat(SqlStatementCounter.count("cart")).isZero();
+    }
+
+    @Test
+    void projectionAgainstEntities() {
+        Pageable pageDetails = PageRequest.of(0, PRODUCTS, Sort.by("productId"));
+        Supplier<List<ProductDTO>> projection = () -> productRepository.findProductDTOs(pageDetails).getContent();
+        Supplier<List<ProductDTO>> entities = () -> productRepository.findAll(pageDetails).getContent().stream()
+                .map(product -> modelMapper.map(product, ProductDTO.class))
+                .toList();
+
+        Measurement projected = measure(projection);
+        Measurement hydrated = measure(entities);
+
+        assertThat(projected.result()).isEqualTo(hydrated.result());
+        assertThat(projected.statements()).isEqualTo(1);
+        assertThat(hydrated.statements()).isGreaterThan(projected.statements());
+        // The EAGER cart items and carts are what the projection saves - counted, not timed, so CI cannot flake
+        assertThat(projected.cartStatements()).isZero();
+        assertThat(hydrated.cartStatements()).isPositive();
+    }
+
+    private static Measurement measure(Supplier<List<ProductDTO>> page) {
+        // Warm up first - one-off startup queries would otherwise be counted
+        page.get();
+
+        SqlStatementCounter.reset();
+        List<ProductDTO> result = page.get();
+        return new Measurement(result, SqlStatementCounter.statements().size(), SqlStatementCounter.count("cart"));
+    }
+
+    private record Measurement(List<ProductDTO> result, int statements, long cartStatements) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Bucket edges, partial buckets refined against the exact price, facets counted without their own filter,
+// paging by offset, and re-indexing a changed product
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex();
+        index.index(List.of(
+                product(1, 1L, 7L, 24.99, 0, 5),
+                product(2, 1L, 7L, 25, 19.99, 5),
+                product(3, 1L, 8L, 50, 20, 0),
+                product(4, 2L, 8L, 50.01, 35, 5),
+                product(5, 2L, null, 5000, 90, 5)));
+    }
+
+    @Test
+    void priceOnABoundIsCountedInTheBucketItStarts() {
+        Map<String, Integer> prices = filter(null, null, null, null, null, null).facets().get("price");
+
+        assertThat(prices).containsEntry("10-25", 1).containsEntry("25-50", 1).containsEntry("50-100", 2)
+                .containsEntry("5000+", 1);
+    }
+
+    @Test
+    void priceRangeIncludesBothBounds() {
+        assertThat(filter(null, 25.0, 50.0, null, null, null).productIds()).containsExactly(2L, 3L);
+        assertThat(filter(null, null, 25.0, null, null, null).productIds()).containsExactly(1L, 2L);
+        assertThat(filter(null, 50.01, null, null, null, null).productIds()).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void discountOnABoundCountsAsAtLeastIt() {
+        ProductFacetIndex.Result result = filter(null, null, null, 20.0, null, null);
+
+        assertThat(result.productIds()).containsExactly(3L, 4L, 5L);
+        assertThat(result.facets().get("discount")).containsEntry("10+", 4).containsEntry("20+", 3)
+                .containsEntry("30+", 2).containsEntry("90+", 1);
+    }
+
+    @Test
+    void facetIsCountedWithEveryFilterButItsOwn() {
+        ProductFacetIndex.Result result = filter(1L, null, null, null, true, null);
+
+        assertThat(result.productIds()).containsExactly(1L, 2L);
+        // Category 2 stays visible for switching to it, with the in-stock filter applied
+        assertThat(result.facets().get("category")).containsExactly(Map.entry("1", 2), Map.entry("2", 2));
+        // In-stock is counted within category 1, not narrowed by itself
+        assertThat(result.facets().get("inStock")).containsEntry("true", 2);
+        assertThat(result.facets().get("seller")).containsExactly(Map.entry("7", 2));
+    }
+
+    @Test
+    void unknownCategoryMatchesNothing() {
+        ProductFacetIndex.Result result = filter(99L, null, null, null, null, null);
+
+        assertThat(result.productIds()).isEmpty();
+        assertThat(result.totalElements()).isZero();
+    }
+
+    @Test
+    void pagesFollowIdOrderFromTheOffset() {
+        assertThat(index.filter(null, null, null, null, null, null, 0, 2).productIds()).containsExactly(1L, 2L);
+        assertThat(index.filter(null, null, null, null, null, null, 2, 2).productIds()).containsExactly(3L, 4L);
+        assertThat(index.filter(null, null, null, null, null, null, 4, 2).productIds()).containsExactly(5L);
+        ProductFacetIndex.Result past = index.filter(null, null, null, null, null, null, 5, 2);
+        assertThat(past.productIds()).isEmpty();
+        assertThat(past.totalElements()).isEqualTo(5);
+    }
+
+    @Test
+    void reindexedProductLeavesItsOldBuckets() {
+        index.index(product(1, 2L, 8L, 300, 50, 0));
+
+        assertThat(filter(null, null, 25.0, null, null, null).productIds()).containsExactly(2L);
+        assertThat(filter(null, 250.0, 500.0, null, null, null).productIds()).containsExactly(1L);
+        assertThat(filter(1L, null, null, null, null, null).productIds()).containsExactly(2L, 3L);
+        assertThat(filter(null, null, null, null, true, null).productIds()).containsExactly(2L, 4L, 5L);
+
+        index.remove(List.of(1L, 5L));
+
+        assertThat(filter(null, null, null, null, null, null).productIds()).containsExactly(2L, 3L, 4L);
+        assertThat(filter(null, null, null, null, null, null).facets().get("category"))
+                .containsExactly(Map.entry("1", 2), Map.entry("2", 1));
+    }
+
+    private ProductFacetIndex.Result filter(Long categoryId, Double minPrice, Double maxPrice, Double minDiscount,
+                                            Boolean inStockOnly, Long sellerId) {
+        return index.filter(categoryId, minPrice, maxPrice, minDiscount, inStockOnly, sellerId, 0, 100);
+    }
+
+    private static Product product(long productId, Long categoryId, Long sellerId, double specialPrice,
+                                   double discount, int quantity) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setCategory(new Category(categoryId, "Category " + categoryId, null));
+        if (sellerId != null) {
+            User seller = new User();
+            seller.setUserId(sellerId);
+            product.setUser(seller);
+        }
+        product.setSpecialPrice(specialPrice);
+        product.setDiscount(discount);
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.payload.ProductDTO;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// CSV import: quoted fields reach the product as written, bad rows are reported by line, and a broken
+// record stops the import after the rows before it are saved
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductImportServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${spring.app.jwtCookieName}")
+    private String jwtCookieName;
+
+    private Cookie jwtCookie;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        categoryId = categoryRepository.save(new Category(null, "Category " + UUID.randomUUID(), null)).getCategoryId();
+
+        jwtCookie = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(jwtCookieName);
+        assertThat(jwtCookie).isNotNull();
+    }
+
+    @Test
+    void quotedFieldsAreImportedAsWrittenAndBadRowsReported() throws Exception {
+        String csv = "productName,description,quantity,price,discount\r\n"
+                + "\"Desk lamp, brass\",\"The \"\"Classic\"\" lamp\r\nwith a cloth cord\",5,40,10\r\n"
+                + "Desk lamp; brass,Same lamp without the comma,5,40,\r\n"
+                + "Floor lamp,Tall lamp for the corner,five,80,0\r\n"
+                + "\"Desk lamp, brass\",Listed again,5,40,10\r\n";
+
+        importCsv(csv)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(4))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.aborted").value(false))
+                // The first record spans lines 2-3
+                .andExpect(jsonPath("$.errors[0].line").value(5))
+                .andExpect(jsonPath("$.errors[0].productName").value("Floor lamp"))
+                .andExpect(jsonPath("$.errors[1].line").value(6))
+                .andExpect(jsonPath("$.errors[1].productName").value("Desk lamp, brass"));
+
+        List<ProductDTO> products = productRepository.findProductDTOsByCategoryId(categoryId, PageRequest.ofSize(10)).getContent();
+        assertThat(products).extracting(ProductDTO::getProductName).containsExactlyInAnyOrder("Desk lamp, brass", "Desk lamp; brass");
+        assertThat(products).filteredOn(product -> product.getProductName().equals("Desk lamp, brass"))
+                .singleElement()
+                .satisfies(product -> {
+                    assertThat(product.getDescription()).isEqualTo("The \"Classic\" lamp\r\nwith a cloth cord");
+                    assertThat(product.getSpecialPrice()).isEqualTo(36);
+                });
+    }
+
+    @Test
+    void unclosedQuoteAbortsAfterTheRowsBeforeIt() throws Exception {
+        String csv = "productName,description,quantity,price\n"
+                + "Wall clock,Round clock for the kitchen,3,25\n"
+                + "\"Alarm clock,Loud clock by the bed,3,15\n"
+                + "Wall mirror,Oval mirror for the hall,3,60\n";
+
+        importCsv(csv)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.aborted").value(true))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+
+        assertThat(productRepository.findProductNamesByCategoryId(categoryId)).containsExactly("Wall clock");
+    }
+
+    private ResultActions importCsv(String csv) throws Exception {
+        return mockMvc.perform(post("/api/admin/categories/{categoryId}/products/import", categoryId)
+                .cookie(jwtCookie)
+                .contentType("text/csv")
+                .content(csv));
+    }
+}
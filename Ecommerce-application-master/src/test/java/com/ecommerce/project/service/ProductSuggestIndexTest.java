@@ -0,0 +1,94 @@
+package com.ecommerce.project.service;
+
+import com.ecommerce.project.payload.ProductSuggestion;
+import com.ecommerce.project.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Snapshot lookups: prefixes match at word starts only, a product matching at several words is listed
+// once, and the best-ranked products come out of a large match range first
+class ProductSuggestIndexTest {
+
+    @Test
+    void nameMatchingAtTwoWordStartsIsListedOnce() {
+        ProductSuggestIndex index = index(
+                row(1, "Red Running Shoes", 5, 10),
+                row(2, "Trail runner", 5, 5),
+                row(3, "Blue shoes", 5, 1));
+
+        assertThat(names(index.suggest("r", 10))).containsExactly("Red Running Shoes", "Trail runner");
+        assertThat(names(index.suggest("sh", 10))).containsExactly("Red Running Shoes", "Blue shoes");
+    }
+
+    @Test
+    void prefixMatchesWordStartsOnly() {
+        ProductSuggestIndex index = index(row(1, "Apple iPhone 15", 5, 0), row(2, "USB-C cable", 5, 0));
+
+        assertThat(names(index.suggest("  IPH ", 10))).containsExactly("Apple iPhone 15");
+        assertThat(names(index.suggest("15", 10))).containsExactly("Apple iPhone 15");
+        assertThat(names(index.suggest("c c", 10))).containsExactly("USB-C cable");
+        assertThat(index.suggest("phone", 10)).isEmpty();
+        assertThat(index.suggest("apple iphone 15 pro", 10)).isEmpty();
+    }
+
+    @Test
+    void mostOrderedThenMostStockedComeFirst() {
+        ProductSuggestIndex index = index(
+                row(1, "Desk lamp", 50, 3),
+                row(2, "Desk chair", 5, 9),
+                row(3, "Desk mat", 10, 3),
+                row(4, "Desk fan", 10, 3));
+
+        assertThat(index.suggest("desk", 10)).extracting(ProductSuggestion::getProductId)
+                .containsExactly(2L, 1L, 3L, 4L);
+    }
+
+    @Test
+    void bestOfALargeRangeAreTakenInRankOrder() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            // Scattered through the key order, so the best entries are not next to each other
+            rows.add(row(i, "Lamp " + Integer.toString(i * 7919 % 1000, 36), 1, i));
+        }
+        ProductSuggestIndex index = index(rows.toArray(Object[][]::new));
+
+        assertThat(index.suggest("lamp", 5)).extracting(ProductSuggestion::getProductId)
+                .containsExactly(500L, 499L, 498L, 497L, 496L);
+    }
+
+    @Test
+    void emptyQueryOrLimitSuggestsNothing() {
+        ProductSuggestIndex index = index(row(1, "Desk lamp", 1, 1));
+
+        assertThat(index.suggest("   ", 10)).isEmpty();
+        assertThat(index.suggest(null, 10)).isEmpty();
+        assertThat(index.suggest("desk", 0)).isEmpty();
+    }
+
+    private static ProductSuggestIndex index(Object[]... rows) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findSuggestRowsAfter(any(), any())).thenReturn(Arrays.asList(rows));
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        ReflectionTestUtils.setField(index, "productRepository", productRepository);
+        index.rebuild();
+        return index;
+    }
+
+    // As findSuggestRowsAfter returns them: id, name, stock, units ordered
+    private static Object[] row(long productId, String productName, int quantity, long unitsOrdered) {
+        return new Object[]{productId, productName, quantity, unitsOrdered};
+    }
+
+    private static List<String> names(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::getProductName).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecommerce.project.utils;
+
+import com.ecommerce.project.SqlStatementCounter;
+import com.ecommerce.project.model.Address;
+import com.ecommerce.project.model.Category;
+import com.ecommerce.project.model.Product;
+import com.ecommerce.project.model.User;
+import com.ecommerce.project.repositories.AddressRepository;
+import com.ecommerce.project.repositories.CategoryRepository;
+import com.ecommerce.project.repositories.ProductRepository;
+import com.ecommerce.project.repositories.UserRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Counts SQL per request on /api/carts/** and /api/order/** - the logged in user must not be re-queried
+@SpringBootTest
+@AutoConfigureMockMvc
+class AuthUtilStatementCountTest {
+
+    // users lookup by name, as issued by UserRepository.findUserByUserName
+    private static final String USER_LOOKUP = "username=?";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${spring.app.jwtCookieName}")
+    private String jwtCookieName;
+
+    private Cookie jwtCookie;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Category category = categoryRepository.save(new Category(null, "Category " + UUID.randomUUID(), null));
+
+        Product product = new Product();
+        product.setProductName("Product " + UUID.randomUUID());
+        product.setDescription("Statement count product");
+        product.setQuantity(100);
+        product.setPrice(100);
+        product.setSpecialPrice(100);
+        product.setCategory(category);
+        productId = productRepository.save(product).getProductId();
+
+        jwtCookie = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"johndoe\",\"password\":\"john@1234\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(jwtCookieName);
+        assertThat(jwtCookie).isNotNull();
+    }
+
+    @Test
+    void cartRequestsDoNotRequeryLoggedInUser() throws Exception {
+        // First add creates the cart - the only request that needs the User entity
+        perform(post("/api/carts/products/{productId}/quantity/{quantity}", productId, 1))
+                .andExpect(status().isCreated());
+        assertThat(SqlStatementCounter.count(USER_LOOKUP)).isLessThanOrEqualTo(1);
+
+        perform(get("/api/carts/users/cart"))
+                .andExpect(status().isOk());
+        assertThat(SqlStatementCounter.count(USER_LOOKUP)).isZero();
+    }
+
+    @Test
+    void orderRequestDoesNotRequeryLoggedInUser() throws Exception {
+        User user = userRepository.findUserByUserName("johndoe").orElseThrow();
+        Address address = new Address("Statement street", "Statement building", "City", "State", "Country", "12345");
+        address.setUser(user);
+        Long addressId = addressRepository.save(address).getAddressId();
+
+        perform(post("/api/carts/products/{productId}/quantity/{quantity}", productId, 1))
+                .andExpect(status().isCreated());
+
+        perform(post("/api/order/users/payments/{paymentMethod}", "card")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"addressId\":" + addressId + ",\"pgName\":\"stripe\",\"pgPaymentId\":\"pi_1\","
+                        + "\"pgStatus\":\"succeeded\",\"pgResponseMessage\":\"ok\"}"))
+                .andExpect(status().isCreated());
+        assertThat(SqlStatementCounter.count(USER_LOOKUP)).isZero();
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        SqlStatementCounter.reset();
+        return mockMvc.perform(request.cookie(jwtCookie));
+    }
+}
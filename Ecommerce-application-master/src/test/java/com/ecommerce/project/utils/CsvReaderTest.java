@@ -0,0 +1,90 @@
+package com.ecommerce.project.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// RFC 4180 records, line numbers for error reports, and the record cap
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldHoldsCommaLineBreakAndDoubledQuotes() throws Exception {
+        CsvReader csv = reader("name,description\r\n\"Lamp, desk\",\"Says \"\"hi\"\"\non two lines\"\r\n");
+
+        assertThat(csv.readRecord()).containsExactly("name", "description");
+        assertThat(csv.readRecord()).containsExactly("Lamp, desk", "Says \"hi\"\non two lines");
+        assertThat(csv.readRecord()).isNull();
+    }
+
+    @Test
+    void crLfAndBareLineBreaksEndRecords() throws Exception {
+        assertThat(readAll("a,b\r\nc,d\re,f\ng,h")).containsExactly(
+                List.of("a", "b"), List.of("c", "d"), List.of("e", "f"), List.of("g", "h"));
+    }
+
+    @Test
+    void emptyFieldsAreKept() throws Exception {
+        assertThat(readAll(",x,\n\"\",\"\"\n")).containsExactly(List.of("", "x", ""), List.of("", ""));
+    }
+
+    @Test
+    void quoteInsideAnUnquotedFieldIsData() throws Exception {
+        assertThat(readAll("5\" screen,ok\n")).containsExactly(List.of("5\" screen", "ok"));
+    }
+
+    @Test
+    void recordLineCountsLineBreaksInsideQuotes() throws Exception {
+        CsvReader csv = reader("h\n\"one\ntwo\nthree\"\nnext\n");
+
+        csv.readRecord();
+        assertThat(csv.getRecordLine()).isEqualTo(1);
+        csv.readRecord();
+        assertThat(csv.getRecordLine()).isEqualTo(2);
+        csv.readRecord();
+        assertThat(csv.getRecordLine()).isEqualTo(5);
+    }
+
+    @Test
+    void unclosedQuoteIsMalformed() throws Exception {
+        CsvReader csv = reader("h\n\"never closed,1\n2\n");
+
+        csv.readRecord();
+        assertThatThrownBy(csv::readRecord)
+                .isInstanceOf(CsvReader.MalformedRecordException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    void recordOverTheCapIsMalformed() {
+        CsvReader csv = reader("x".repeat(CsvReader.MAX_RECORD_CHARS + 1) + "\n");
+
+        assertThatThrownBy(csv::readRecord).isInstanceOf(CsvReader.MalformedRecordException.class);
+    }
+
+    @Test
+    void recordAtTheCapIsRead() throws Exception {
+        // The cap counts the line break too
+        String field = "x".repeat(CsvReader.MAX_RECORD_CHARS - 1);
+
+        assertThat(readAll(field + "\n")).containsExactly(List.of(field));
+    }
+
+    private static CsvReader reader(String content) {
+        return new CsvReader(new StringReader(content));
+    }
+
+    private static List<List<String>> readAll(String content) throws Exception {
+        CsvReader csv = reader(content);
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
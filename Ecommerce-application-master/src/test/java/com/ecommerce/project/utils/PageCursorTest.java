@@ -0,0 +1,97 @@
+package com.ecommerce.project.utils;
+
+import com.ecommerce.project.exceptions.APIException;
+import com.ecommerce.project.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cursors round-trip to typed keys; anything the client could have edited - the sort, the key set,
+// a value - is refused, as are sorts whose keys cannot be compared
+class PageCursorTest {
+
+    private static final Sort BY_PRICE = Sort.by("price").ascending();
+
+    @Test
+    void cursorRoundTripsToTheEntityTypes() {
+        String cursor = PageCursor.encode(ScrollPosition.forward(Map.of("price", 25.5, "productId", 7L)), BY_PRICE);
+
+        KeysetScrollPosition position = PageCursor.decode(cursor, BY_PRICE, Product.class);
+
+        assertThat(position.getDirection()).isEqualTo(ScrollPosition.Direction.FORWARD);
+        assertThat(position.getKeys()).isEqualTo(Map.of("price", 25.5, "productId", 7L));
+    }
+
+    @Test
+    void emptyCursorIsTheFirstPage() {
+        assertThat(PageCursor.decode(null, BY_PRICE, Product.class).isInitial()).isTrue();
+        assertThat(PageCursor.decode("", BY_PRICE, Product.class).isInitial()).isTrue();
+    }
+
+    @Test
+    void cursorThatIsNotOursIsInvalid() {
+        assertInvalid("not a cursor!", "Invalid cursor");
+        assertInvalid(Base64.getUrlEncoder().encodeToString("[1,2]".getBytes()), "Invalid cursor");
+    }
+
+    @Test
+    void cursorForAnotherSortIsRefused() {
+        String cursor = PageCursor.encode(ScrollPosition.forward(Map.of("price", 25.5, "productId", 7L)), BY_PRICE);
+
+        assertThatThrownBy(() -> PageCursor.decode(cursor, Sort.by("price").descending(), Product.class))
+                .isInstanceOf(APIException.class)
+                .hasMessage("Cursor does not match the requested sort");
+    }
+
+    @Test
+    void editedKeysAreInvalid() {
+        // Missing the id tie-breaker
+        assertInvalid(cursor(Map.of("price", 25.5)), "Invalid cursor");
+        // An extra key the sort does not use
+        assertInvalid(cursor(Map.of("price", 25.5, "productId", 7, "quantity", 1)), "Invalid cursor");
+        // A key that is not a number
+        assertInvalid(cursor(Map.of("price", "cheap", "productId", 7)), "Invalid cursor");
+        // A null key
+        Map<String, Object> nullPrice = new HashMap<>();
+        nullPrice.put("price", null);
+        nullPrice.put("productId", 7);
+        assertInvalid(cursor(nullPrice), "Invalid cursor");
+    }
+
+    @Test
+    void sortsWithoutComparableNonNullKeysAreRefused() {
+        // quantity is a nullable column
+        assertThatThrownBy(() -> PageCursor.decode(null, Sort.by("quantity"), Product.class))
+                .isInstanceOf(APIException.class)
+                .hasMessageContaining("it may be empty");
+        // category is a relation
+        assertThatThrownBy(() -> PageCursor.decode(null, Sort.by("category"), Product.class))
+                .isInstanceOf(APIException.class)
+                .hasMessage("Cannot page by cursor sorted by category");
+    }
+
+    private static void assertInvalid(String cursor, String message) {
+        assertThatThrownBy(() -> PageCursor.decode(cursor, BY_PRICE, Product.class))
+                .isInstanceOf(APIException.class)
+                .hasMessage(message);
+    }
+
+    // What a client editing a cursor would send: our format, its own keys
+    private static String cursor(Map<String, Object> keys) {
+        try {
+            byte[] json = new ObjectMapper().writeValueAsBytes(Map.of("sort", BY_PRICE.toString(), "keys", keys));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}